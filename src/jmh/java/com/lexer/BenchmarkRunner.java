@@ -0,0 +1,24 @@
+package com.lexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Entry point of benchmarks.jar: the usual JMH command line (e.g. "ProcessInput -p size=65536"),
+// with the GC profiler always on so every result reports its allocation rate next to ops/s. Forks
+// get the Vector API module, so the scanner uses VectorByteScan unless -Dlexer.vector=false is
+// passed with -jvmArgsAppend.
+public final class BenchmarkRunner {
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        int profiler = arguments.indexOf("-prof");
+        boolean hasGcProfiler = profiler >= 0 && profiler + 1 < arguments.size() && arguments.get(profiler + 1).equals("gc");
+        if (!hasGcProfiler) {
+            arguments.addAll(0, List.of("-prof", "gc"));
+        }
+        if (!arguments.contains("-jvmArgsPrepend")) {
+            arguments.addAll(0, List.of("-jvmArgsPrepend", "--add-modules=jdk.incubator.vector"));
+        }
+        org.openjdk.jmh.Main.main(arguments.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,32 @@
+package com.lexer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// Regex -> NFA -> DFA -> minimized DFA for each token rule on its own, and for the whole spec
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConverterBenchmark {
+    @Param({"BOOLEAN", "IDENTIFIER", "INTEGER", "DECIMAL", "CHAR", "STRING", "OPERATOR", "SYMBOL", "GLOBAL_IDENTIFIER"})
+    public String rule;
+
+    private String regex;
+
+    @Setup
+    public void setup() {
+        LexerSpec spec = LexerSpec.defaultSpec();
+        regex = spec.getRuleRegex(spec.getRuleIndex(rule));
+    }
+
+    // convertRegexToDFA without the transition table printout
+    @Benchmark
+    public DFA convertRegexToDFA() {
+        return new RegexToDFAConverter().compileRegex(regex);
+    }
+}
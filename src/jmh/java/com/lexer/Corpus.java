@@ -0,0 +1,108 @@
+package com.lexer;
+
+import java.util.Random;
+
+// Deterministic synthetic .xcl sources for the benchmarks
+public final class Corpus {
+    public enum Mix {
+        IDENTIFIERS, // declarations, assignments and calls
+        LITERALS,    // integer, decimal, char and boolean constants
+        COMMENTS,    // mostly // and /* */ comments around a little code
+        STRINGS,     // string literals
+        WHITESPACE   // short statements under deep indentation and column alignment
+    }
+
+    private static final String[] TYPES = {"int", "deci", "char", "bool", "str"};
+
+    private Corpus() {
+    }
+
+    // About 'size' bytes of source with the given mix
+    static String generate(Mix mix, int size, long seed) {
+        Random random = new Random(seed);
+        StringBuilder out = new StringBuilder(size + 256);
+        while (out.length() < size) {
+            out.append("def ").append(TYPES[random.nextInt(4)]).append(" f").append(word(random, 3)).append("(int ").append(word(random, 4)).append(") {\n");
+            for (int line = 0; line < 12 && out.length() < size; line++) {
+                out.append("    ");
+                switch (mix) {
+                    case IDENTIFIERS -> identifierLine(random, out);
+                    case LITERALS -> literalLine(random, out);
+                    case COMMENTS -> commentLine(random, out);
+                    case STRINGS -> stringLine(random, out);
+                    case WHITESPACE -> whitespaceLine(random, out);
+                }
+                out.append('\n');
+            }
+            out.append("}\n");
+        }
+        return out.toString();
+    }
+
+    private static void identifierLine(Random random, StringBuilder out) {
+        out.append(TYPES[random.nextInt(TYPES.length)]).append(' ').append(word(random, 6)).append(" = ")
+                .append(word(random, 5)).append(" + ").append(word(random, 7)).append(" * @")
+                .append(word(random, 4)).append(';');
+    }
+
+    private static void literalLine(Random random, StringBuilder out) {
+        out.append(word(random, 3)).append(" = ").append(random.nextInt(100000)).append(" + ")
+                .append(random.nextInt(1000)).append('.').append(random.nextInt(100000)).append(" - '")
+                .append((char) ('a' + random.nextInt(26))).append("' ").append(random.nextBoolean() ? "true" : "false")
+                .append(';');
+    }
+
+    private static void commentLine(Random random, StringBuilder out) {
+        if (random.nextInt(4) == 0) {
+            out.append(word(random, 4)).append(" = ").append(random.nextInt(100)).append(';');
+        } else if (random.nextBoolean()) {
+            out.append("// ").append(sentence(random, 8));
+        } else {
+            out.append("/* ").append(sentence(random, 5)).append("\n       ").append(sentence(random, 5)).append(" */");
+        }
+    }
+
+    private static void stringLine(Random random, StringBuilder out) {
+        out.append("str ").append(word(random, 4)).append(" = \"").append(sentence(random, 6)).append("\";");
+    }
+
+    private static void whitespaceLine(Random random, StringBuilder out) {
+        out.append(" ".repeat(4 * random.nextInt(8)));
+        if (random.nextInt(4) == 0) return; // blank line with trailing indentation
+        out.append(word(random, 1 + random.nextInt(4))).append(" ".repeat(1 + random.nextInt(24))).append('=')
+                .append(" ".repeat(1 + random.nextInt(24))).append(random.nextInt(100)).append(';');
+    }
+
+    private static String word(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sentence.append(' ');
+            sentence.append(word(random, 2 + random.nextInt(7)));
+        }
+        return sentence.toString();
+    }
+
+    // Valid lexemes of one token rule, for per-type validation benchmarks
+    static String[] samples(String rule) {
+        return switch (rule) {
+            case "BOOLEAN" -> new String[]{"true", "false"};
+            case "IDENTIFIER" -> new String[]{"x", "counter", "total", "index", "greeting", "averylongidentifiername"};
+            case "INTEGER" -> new String[]{"0", "7", "42", "12345", "2147483647"};
+            case "DECIMAL" -> new String[]{"0.5", "3.14159", "45.67", "100.00001"};
+            case "CHAR" -> new String[]{"'a'", "'Z'", "'7'"};
+            case "STRING" -> new String[]{"\"\"", "\"Hello, world!\"", "\"a longer string literal with words\""};
+            case "OPERATOR" -> new String[]{"+", "-", "*", "/", "%", "^", "="};
+            case "SYMBOL" -> new String[]{"{", "}", "(", ")", ",", ";"};
+            case "GLOBAL_IDENTIFIER" -> new String[]{"@x", "@counter", "@globalvalue"};
+            default -> throw new IllegalArgumentException("Unknown rule: " + rule);
+        };
+    }
+}
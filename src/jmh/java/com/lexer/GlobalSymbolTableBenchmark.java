@@ -0,0 +1,74 @@
+package com.lexer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// Multi-threaded insert throughput of the shared global scope: GlobalSymbolTable against one
+// SymbolTable behind a lock. Every thread inserts names from a common pool, so the larger the
+// pool the more inserts are first declarations (writes) rather than re-declarations (reads).
+// The tables start empty each iteration. Vary the thread count with -t.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class GlobalSymbolTableBenchmark {
+    @Param({"1000", "1000000"})
+    public int poolSize;
+
+    private String[] names;
+    private GlobalSymbolTable shared;
+    private SymbolTable locked;
+
+    @Setup(Level.Trial)
+    public void createNames() {
+        names = new String[poolSize];
+        for (int i = 0; i < poolSize; i++) {
+            names[i] = "global" + i;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createTables() {
+        shared = new GlobalSymbolTable();
+        locked = new SymbolTable();
+    }
+
+    // Each thread walks the pool from its own starting point with a coprime stride
+    @State(Scope.Thread)
+    public static class Cursor {
+        private static int threads;
+        private int index;
+
+        @Setup
+        public void setup(GlobalSymbolTableBenchmark benchmark) {
+            synchronized (Cursor.class) {
+                index = threads++ * 7919 % benchmark.poolSize;
+            }
+        }
+
+        String next(String[] names) {
+            String name = names[index];
+            index += 7;
+            if (index >= names.length) index -= names.length;
+            return name;
+        }
+    }
+
+    @Benchmark
+    public boolean globalSymbolTable(Cursor cursor) {
+        return shared.insert(cursor.next(names), "INTEGER", "");
+    }
+
+    @Benchmark
+    public void lockedSymbolTable(Cursor cursor) {
+        String name = cursor.next(names);
+        synchronized (locked) {
+            locked.insert(name, "INTEGER", "global", "");
+        }
+    }
+}
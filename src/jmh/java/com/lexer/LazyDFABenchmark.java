@@ -0,0 +1,51 @@
+package com.lexer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Scanning with the precompiled DFA against LazyDFA at several cache sizes. cacheBytes = 0 is the
+// eager DFA. A lazy scanner starts cold in every operation, so its results include building the
+// states the source needs. 4096 bytes is too small for the default rules' working set and ends in
+// NFA simulation; 16384 holds every state these sources reach.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LazyDFABenchmark {
+    @Param({"IDENTIFIERS", "LITERALS", "COMMENTS", "STRINGS"})
+    public Corpus.Mix mix;
+
+    @Param({"65536"})
+    public int size;
+
+    @Param({"0", "4096", "16384", "65536"})
+    public long cacheBytes;
+
+    private LexerSpec spec;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        LexerGrammar grammar = LexerGrammar.defaultGrammar();
+        spec = cacheBytes == 0 ? LexerSpec.compile(grammar) : LexerSpec.compileLazy(grammar, cacheBytes);
+        bytes = Corpus.generate(mix, size, 42).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int scan() throws IOException {
+        TokenScanner scanner = new TokenScanner(new LexicalAnalyzer(spec), ByteBuffer.wrap(bytes));
+        int lexemes = 0;
+        while (scanner.advanceRaw()) {
+            lexemes++;
+            scanner.consume();
+        }
+        return lexemes;
+    }
+}
@@ -0,0 +1,104 @@
+package com.lexer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+// LexicalAnalyzer.processInput over synthetic sources of increasing size. One operation is one
+// whole source; multiply ops/s by the size for bytes per second.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProcessInputBenchmark {
+    @Param({"IDENTIFIERS", "LITERALS", "COMMENTS", "STRINGS", "WHITESPACE"})
+    public Corpus.Mix mix;
+
+    @Param({"1024", "65536", "1048576"})
+    public int size;
+
+    private LexerSpec spec;
+    private String input;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        spec = LexerSpec.defaultSpec();
+        input = Corpus.generate(mix, size, 42);
+        bytes = input.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public LexicalAnalyzer processInput() {
+        LexicalAnalyzer analyzer = new LexicalAnalyzer(spec);
+        analyzer.processInput(input);
+        return analyzer;
+    }
+
+    // Same with a LexerMetrics listener, for the cost of enabled metrics
+    @Benchmark
+    public LexicalAnalyzer processInputWithMetrics() {
+        LexicalAnalyzer analyzer = new LexicalAnalyzer(spec);
+        analyzer.setListener(new LexerMetrics());
+        analyzer.processInput(input);
+        return analyzer;
+    }
+
+    // The same source through LexerPipeline, with a subscriber that only counts tokens
+    @Benchmark
+    public long pipeline() throws InterruptedException, ExecutionException {
+        LexerPipeline pipeline = new LexerPipeline(spec, Channels.newChannel(new ByteArrayInputStream(bytes)));
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        pipeline.subscribe(new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+            private long tokens;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(4);
+            }
+
+            @Override
+            public void onNext(List<Token> batch) {
+                tokens += batch.size();
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                done.completeExceptionally(error);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(tokens);
+            }
+        });
+        return done.get();
+    }
+
+    // Longest-match scanning alone: no classification, symbol table or Token objects
+    @Benchmark
+    public int scanOnly() throws IOException {
+        TokenScanner scanner = new TokenScanner(new LexicalAnalyzer(spec), ByteBuffer.wrap(bytes));
+        int lexemes = 0;
+        while (scanner.advanceRaw()) {
+            lexemes++;
+            scanner.consume();
+        }
+        return lexemes;
+    }
+}
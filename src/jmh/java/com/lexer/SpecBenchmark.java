@@ -0,0 +1,55 @@
+package com.lexer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Startup cost of a LexerSpec scanner: compiling every rule into the combined DFA, taking it from
+// the DFACache, or loading the precompiled tables
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SpecBenchmark {
+    private Path tables;
+    private List<String> rules;
+
+    @Setup
+    public void setup() throws IOException {
+        tables = Files.createTempFile("lexer", ".tables");
+        LexerSpec spec = LexerSpec.compile();
+        spec.save(tables);
+        rules = new ArrayList<>();
+        for (int i = 0; i < spec.getRuleCount(); i++) {
+            rules.add(spec.getRuleRegex(i));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(tables);
+    }
+
+    @Benchmark
+    public DFA compile() {
+        return new RegexToDFAConverter().convertRulesToDFA(rules);
+    }
+
+    @Benchmark
+    public DFA compileCached() {
+        return LexerSpec.compile().getScanner();
+    }
+
+    @Benchmark
+    public DFA load() throws IOException {
+        return LexerSpec.load(tables).getScanner();
+    }
+}
@@ -0,0 +1,87 @@
+package com.lexer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// SymbolTable insert and exists with tables of increasing size. One operation is one call, except
+// for insertNew, where it is filling a whole table.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SymbolTableBenchmark {
+    private static final String[] SCOPES = {"global", "main", "factorial", "square", "average"};
+    private static final int LOOKUPS = 1024;
+
+    @Param({"1000", "100000"})
+    public int symbols;
+
+    private String[] names;
+    private String[] scopes;
+    private String[] missing;
+    private SymbolTable table;
+
+    @Setup
+    public void setup() {
+        names = new String[symbols];
+        scopes = new String[symbols];
+        missing = new String[symbols];
+        for (int i = 0; i < symbols; i++) {
+            // New String objects, as the scanner produces them, so lookups hash and compare contents
+            names[i] = new String("var" + i);
+            scopes[i] = new String(SCOPES[i % SCOPES.length]);
+            missing[i] = new String("undeclared" + i);
+        }
+        table = fill();
+    }
+
+    private SymbolTable fill() {
+        SymbolTable filled = new SymbolTable();
+        for (int i = 0; i < symbols; i++) {
+            filled.insert(names[i], "INTEGER", scopes[i], "");
+        }
+        return filled;
+    }
+
+    // Every declaration into an empty table
+    @Benchmark
+    public SymbolTable insertNew() {
+        return fill();
+    }
+
+    // Re-declarations of names that are already in the table
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void insertExisting() {
+        for (int i = 0; i < LOOKUPS; i++) {
+            int n = i * 97 % symbols;
+            table.insert(names[n], "INTEGER", scopes[n], "");
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int existsHit() {
+        int found = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            int n = i * 97 % symbols;
+            if (table.exists(names[n], scopes[n])) found++;
+        }
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int existsMiss() {
+        int found = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            int n = i * 97 % symbols;
+            if (table.exists(missing[n], scopes[n])) found++;
+        }
+        return found;
+    }
+}
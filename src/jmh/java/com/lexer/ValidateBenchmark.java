@@ -0,0 +1,47 @@
+package com.lexer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// DFA.validate over valid lexemes of each token type, on the rule's own minimized DFA.
+// One operation is one validate call.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidateBenchmark {
+    private static final int CALLS = 64;
+
+    @Param({"BOOLEAN", "IDENTIFIER", "INTEGER", "DECIMAL", "CHAR", "STRING", "OPERATOR", "SYMBOL", "GLOBAL_IDENTIFIER"})
+    public String tokenType;
+
+    private DFA dfa;
+    private String[] inputs;
+
+    @Setup
+    public void setup() {
+        LexerSpec spec = LexerSpec.defaultSpec();
+        dfa = new RegexToDFAConverter().compileRegex(spec.getRuleRegex(spec.getRuleIndex(tokenType)));
+        String[] samples = Corpus.samples(tokenType);
+        inputs = new String[CALLS];
+        for (int i = 0; i < CALLS; i++) {
+            inputs[i] = samples[i % samples.length];
+            if (!dfa.validate(inputs[i])) {
+                throw new IllegalStateException(tokenType + " rejects sample " + inputs[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public void validate(Blackhole blackhole) {
+        for (String input : inputs) {
+            blackhole.consume(dfa.validate(input));
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.lexer;
+
+// What TokenScanner needs from a scanner automaton: byte transitions plus the accepting rules and
+// keyword of each state. Implemented by the precompiled DFA and by LazyDFA.
+interface Automaton {
+    int getStartState();
+
+    // Next state on one input byte (0-255), or -1 when no rule can match any more
+    int nextState(int state, int b);
+
+    // Bitset of rules accepted in the state, lowest index first (0 = not final)
+    int getAcceptMask(int state);
+
+    // Keyword whose characters lead to the state, or -1
+    int getKeyword(int state);
+}
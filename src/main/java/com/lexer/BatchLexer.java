@@ -0,0 +1,223 @@
+package com.lexer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
+
+// Lexes many .xcl files in parallel on a work-stealing ForkJoinPool. Every file gets its own
+// LexicalAnalyzer session over one shared LexerSpec; per-file results are aggregated at the end.
+// With sharedGlobals the files are treated as one program: all sessions insert @global identifiers
+// and functions into one GlobalSymbolTable. A listener (e.g. LexerMetrics) and a StringPool for
+// token text are shared by every session.
+public class BatchLexer {
+    private final LexerSpec spec;
+    private final int parallelism;
+    private final boolean sharedGlobals;
+    private final LexerListener listener;
+
+    public BatchLexer(LexerSpec spec, int parallelism, boolean sharedGlobals, LexerListener listener) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.spec = spec;
+        this.parallelism = parallelism;
+        this.sharedGlobals = sharedGlobals;
+        this.listener = listener;
+    }
+
+    public BatchLexer(LexerSpec spec, int parallelism, boolean sharedGlobals) {
+        this(spec, parallelism, sharedGlobals, null);
+    }
+
+    public BatchLexer(LexerSpec spec, int parallelism) {
+        this(spec, parallelism, false);
+    }
+
+    public BatchLexer() {
+        this(LexerSpec.defaultSpec(), Runtime.getRuntime().availableProcessors());
+    }
+
+    // Result of lexing one file
+    public record FileResult(Path file, int tokenCount, Map<String, Integer> tokensByType,
+                             int symbolCount, List<String> errors) {
+    }
+
+    // Aggregated results, in the order the files were given; globals is null unless shared
+    public record BatchResult(List<FileResult> files, GlobalSymbolTable globals, StringPool strings,
+                              long elapsedNanos) {
+        public long totalTokens() {
+            return files.stream().mapToLong(FileResult::tokenCount).sum();
+        }
+
+        public long totalSymbols() {
+            return files.stream().mapToLong(FileResult::symbolCount).sum();
+        }
+
+        public long totalErrors() {
+            return files.stream().mapToLong(file -> file.errors().size()).sum();
+        }
+
+        public Map<String, Long> tokensByType() {
+            Map<String, Long> totals = new TreeMap<>();
+            for (FileResult file : files) {
+                file.tokensByType().forEach((type, count) -> totals.merge(type, (long) count, Long::sum));
+            }
+            return totals;
+        }
+    }
+
+    // Expands directories (recursively, *.xcl) and glob patterns such as "src/**/*.xcl" into files
+    public static List<Path> collectFiles(List<String> arguments) throws IOException {
+        Set<Path> files = new LinkedHashSet<>();
+        for (String argument : arguments) {
+            if (argument.contains("*") || argument.contains("?") || argument.contains("{")) {
+                PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + argument);
+                Path base = globBase(argument);
+                try (Stream<Path> walk = Files.walk(base)) {
+                    walk.filter(Files::isRegularFile)
+                            .filter(path -> matcher.matches(base.equals(Path.of(".")) ? base.relativize(path) : path))
+                            .sorted()
+                            .forEach(files::add);
+                }
+            } else {
+                Path path = Path.of(argument);
+                if (Files.isDirectory(path)) {
+                    try (Stream<Path> walk = Files.walk(path)) {
+                        walk.filter(Files::isRegularFile)
+                                .filter(file -> file.getFileName().toString().endsWith(".xcl"))
+                                .sorted()
+                                .forEach(files::add);
+                    }
+                } else if (Files.isRegularFile(path)) {
+                    files.add(path);
+                } else {
+                    throw new NoSuchFileException(argument);
+                }
+            }
+        }
+        return new ArrayList<>(files);
+    }
+
+    // Directory part of a glob before the first wildcard, or "." if the pattern starts with one
+    private static Path globBase(String glob) {
+        int wildcard = glob.length();
+        for (char c : new char[]{'*', '?', '{', '['}) {
+            int index = glob.indexOf(c);
+            if (index >= 0) wildcard = Math.min(wildcard, index);
+        }
+        int slash = glob.lastIndexOf('/', wildcard);
+        return slash <= 0 ? Path.of(slash == 0 ? "/" : ".") : Path.of(glob.substring(0, slash));
+    }
+
+    public BatchResult lex(List<Path> files) throws IOException {
+        long start = System.nanoTime();
+        GlobalSymbolTable globals = sharedGlobals ? new GlobalSymbolTable() : null;
+        StringPool strings = new StringPool();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<FileResult>> tasks = new ArrayList<>();
+            for (Path file : files) {
+                tasks.add(pool.submit(() -> lexFile(file, globals, strings)));
+            }
+            List<FileResult> results = new ArrayList<>();
+            for (ForkJoinTask<FileResult> task : tasks) {
+                results.add(task.get());
+            }
+            return new BatchResult(results, globals, strings, System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch lexing interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException unchecked) throw unchecked.getCause();
+            if (cause instanceof IOException io) throw io;
+            throw new IllegalStateException("Batch lexing failed", cause);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private FileResult lexFile(Path file, GlobalSymbolTable globals, StringPool strings) throws IOException {
+        LexicalAnalyzer session = globals == null ? new LexicalAnalyzer(spec) : new LexicalAnalyzer(spec, globals);
+        session.setListener(listener);
+        session.setStringPool(strings);
+        Map<String, Integer> tokensByType = new TreeMap<>();
+        int tokenCount = 0;
+        try (TokenScanner scanner = session.scan(file)) {
+            Token token;
+            while ((token = scanner.nextToken()) != null) {
+                tokensByType.merge(token.getType(), 1, Integer::sum);
+                tokenCount++;
+            }
+        }
+        return new FileResult(file, tokenCount, tokensByType, session.getSymbolTable().size(),
+                session.getErrorHandler().getErrors());
+    }
+
+    public static void printSummary(BatchResult result) {
+        for (FileResult file : result.files()) {
+            System.out.println(file.file() + ": " + file.tokenCount() + " tokens, " + file.symbolCount()
+                    + " symbols, " + file.errors().size() + " errors");
+            for (String error : file.errors()) {
+                System.out.println("    " + error);
+            }
+        }
+        System.out.println("\n--- Batch Summary ---");
+        System.out.println("Files: " + result.files().size());
+        System.out.println("Tokens: " + result.totalTokens());
+        result.tokensByType().forEach((type, count) -> System.out.println("    " + type + ": " + count));
+        System.out.println("Symbols: " + result.totalSymbols());
+        if (result.globals() != null) {
+            System.out.println("Global symbols: " + result.globals().size());
+        }
+        System.out.println("Errors: " + result.totalErrors());
+        System.out.printf("Pooled strings: %d, hit rate %.1f%%%n", result.strings().size(),
+                100 * result.strings().getHitRate());
+        System.out.printf("Time: %.1f ms%n", result.elapsedNanos() / 1e6);
+    }
+
+    // Usage: BatchLexer [--threads N] [--shared-globals] [--metrics] [--grammar FILE] <file|directory|glob>...
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean sharedGlobals = false;
+        LexerMetrics metrics = null;
+        String grammar = null;
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--shared-globals")) {
+                sharedGlobals = true;
+            } else if (args[i].equals("--metrics")) {
+                metrics = new LexerMetrics();
+            } else if (args[i].equals("--grammar") && i + 1 < args.length) {
+                grammar = args[++i];
+            } else {
+                paths.add(args[i]);
+            }
+        }
+        if (paths.isEmpty()) {
+            System.out.println("Usage: BatchLexer [--threads N] [--shared-globals] [--metrics] [--grammar FILE] <file|directory|glob>...");
+            return;
+        }
+
+        try {
+            LexerSpec spec = grammar == null ? LexerSpec.defaultSpec() : LexerSpec.loadGrammar(Path.of(grammar));
+            List<Path> files = collectFiles(paths);
+            BatchResult result = new BatchLexer(spec, threads, sharedGlobals, metrics).lex(files);
+            printSummary(result);
+            if (metrics != null) {
+                metrics.printSummary();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("Error reading the files: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.lexer;
+
+import java.nio.ByteBuffer;
+
+// Byte searches the scanner uses to jump over comment bodies, blank runs and the rest of a line.
+// This is the scalar version; VectorByteScan does the same 16-64 bytes at a time when the
+// jdk.incubator.vector module is present (java --add-modules jdk.incubator.vector).
+// Indexes are absolute in the buffer; a search that finds nothing returns 'to'.
+class ByteScan {
+    // -Dlexer.vector=false forces the scalar version
+    private static final boolean VECTOR = vectorAvailable();
+
+    ByteScan() {
+    }
+
+    // New instance for one scanner (the vector version keeps a scratch buffer)
+    static ByteScan create() {
+        return VECTOR ? new VectorByteScan() : new ByteScan();
+    }
+
+    static boolean isVectorized() {
+        return VECTOR;
+    }
+
+    private static boolean vectorAvailable() {
+        if (!Boolean.parseBoolean(System.getProperty("lexer.vector", "true"))) return false;
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return false;
+        try {
+            new VectorByteScan();
+            return true;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    // First index in [from, to) holding b
+    int indexOf(ByteBuffer buf, int from, int to, byte b) {
+        for (int i = from; i < to; i++) {
+            if (buf.get(i) == b) return i;
+        }
+        return to;
+    }
+
+    // First index in [from, to) holding a or b
+    int indexOfEither(ByteBuffer buf, int from, int to, byte a, byte b) {
+        for (int i = from; i < to; i++) {
+            byte c = buf.get(i);
+            if (c == a || c == b) return i;
+        }
+        return to;
+    }
+
+    // First index in [from, to) that is not a space, tab or carriage return
+    int skipBlanks(ByteBuffer buf, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte c = buf.get(i);
+            if (c != ' ' && c != '\t' && c != '\r') return i;
+        }
+        return to;
+    }
+}
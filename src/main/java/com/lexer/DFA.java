@@ -1,67 +1,279 @@
 package com.lexer;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
 
-class DFA {
-    private final Map<String, Integer> transitionTable;
-    private final Set<Integer> finalStates;
+// Built by RegexToDFAConverter and read-only afterwards; scanning keeps its state in local variables
+class DFA implements Automaton {
+    // Flat transition table: table[state * classCount + classId] -> nextState (-1 = no transition)
+    private int[] table;
+    private int[] acceptMask;      // state -> bitset of accepted rules (0 = not final)
+    private int[] keywordOf;       // state -> keyword index read to get here, or -1
+    private final int[] classOf;   // input char -> equivalence class id (-1 = not in alphabet)
+    private final int[] byteClass; // classOf for every byte value 0-255, so scanning bytes needs no bounds check
+    private final int classCount;
+    private int stateCount;
     public final int startState;
-    private int currentState;
 
-    public DFA(int startState) {
+    public DFA(int startState, int[] classOf, int classCount) {
         this.startState = startState;
-        this.currentState = startState;
-        this.transitionTable = new HashMap<>();
-        this.finalStates = new HashSet<>();
+        this.classOf = classOf;
+        this.byteClass = byteClasses(classOf);
+        this.classCount = classCount;
+
+        this.stateCount = 0;
+        this.table = new int[0];
+        this.acceptMask = new int[0];
+        this.keywordOf = new int[0];
+        ensureState(startState);
+    }
+
+    // Precompiled tables (see readFrom)
+    private DFA(int startState, int[] classOf, int classCount, int stateCount, int[] table, int[] acceptMask,
+                int[] keywordOf) {
+        this.startState = startState;
+        this.classOf = classOf;
+        this.byteClass = byteClasses(classOf);
+        this.classCount = classCount;
+        this.stateCount = stateCount;
+        this.table = table;
+        this.acceptMask = acceptMask;
+        this.keywordOf = keywordOf;
+    }
+
+    private static int[] byteClasses(int[] classOf) {
+        int[] byteClass = new int[256];
+        Arrays.fill(byteClass, -1);
+        System.arraycopy(classOf, 0, byteClass, 0, Math.min(classOf.length, 256));
+        return byteClass;
+    }
+
+    // Grow the table so that 'state' has a row; new rows start with no transitions
+    private void ensureState(int state) {
+        if (state < stateCount) return;
+        int capacity = acceptMask.length;
+        if (state >= capacity) {
+            int newCapacity = Math.max(state + 1, capacity * 2);
+            table = Arrays.copyOf(table, newCapacity * classCount);
+            Arrays.fill(table, capacity * classCount, table.length, -1);
+            acceptMask = Arrays.copyOf(acceptMask, newCapacity);
+            keywordOf = Arrays.copyOf(keywordOf, newCapacity);
+            Arrays.fill(keywordOf, capacity, newCapacity, -1);
+        }
+        stateCount = state + 1;
     }
 
     // (currentState, inputChar) -> nextState
     public void addTransition(int currentState, char inputChar, int nextState) {
-        String key = currentState + "," + inputChar;
-        transitionTable.put(key, nextState);
+        int cls = classId(inputChar);
+        if (cls < 0) {
+            throw new IllegalArgumentException("Character '" + inputChar + "' is not in the DFA alphabet");
+        }
+        addClassTransition(currentState, cls, nextState);
+    }
+
+    // (currentState, classId) -> nextState
+    public void addClassTransition(int currentState, int classId, int nextState) {
+        ensureState(Math.max(currentState, nextState));
+        table[currentState * classCount + classId] = nextState;
     }
 
     // Define final/accepting states
     public void addFinalState(int state) {
-        finalStates.add(state);
+        addFinalState(state, 0);
     }
 
-    // Function to reset DFA to start state
-    public void reset() {
-        currentState = startState;
+    // Mark a state as accepting the given rule (combined scanner DFAs accept several rules)
+    public void addFinalState(int state, int rule) {
+        if (rule < 0 || rule >= Integer.SIZE) {
+            throw new IllegalArgumentException("Rule index out of range: " + rule);
+        }
+        ensureState(state);
+        acceptMask[state] |= 1 << rule;
+    }
+
+    // Mark a state as the end of a keyword (combined scanner DFAs built with keywords)
+    void setKeyword(int state, int keyword) {
+        ensureState(state);
+        keywordOf[state] = keyword;
+    }
+
+    public int getStartState() {
+        return startState;
+    }
+
+    // Keyword whose characters lead to this state, or -1
+    public int getKeyword(int state) {
+        return keywordOf[state];
+    }
+
+    public boolean isFinal(int state) {
+        return state >= 0 && state < stateCount && acceptMask[state] != 0;
+    }
+
+    // Highest-priority (lowest index) rule accepted in this state, or -1
+    public int getAcceptedRule(int state) {
+        if (!isFinal(state)) return -1;
+        return Integer.numberOfTrailingZeros(acceptMask[state]);
+    }
+
+    public boolean accepts(int state, int rule) {
+        return isFinal(state) && (acceptMask[state] & (1 << rule)) != 0;
+    }
+
+    private int classId(char inputChar) {
+        return inputChar < classOf.length ? classOf[inputChar] : -1;
     }
 
     // Function to get the next state based on input character
     public int getNextState(int currentState, char inputChar) {
-        String key = currentState + "," + inputChar;
-        return transitionTable.getOrDefault(key, -1); // Return -1 for invalid transitions
+        int cls = classId(inputChar);
+        if (cls < 0 || currentState < 0 || currentState >= stateCount) return -1; // Return -1 for invalid transitions
+        return table[currentState * classCount + cls];
     }
 
-    // Process an input string to check if it is a valid token
+    // Next state on one input byte (0-255), or -1; the scanner's inner loop
+    public int nextState(int currentState, int b) {
+        int cls = byteClass[b];
+        return cls < 0 ? -1 : table[currentState * classCount + cls];
+    }
+
+    // Process an input string to check if it is a valid token; stateless, so safe to share across threads
     public boolean validate(String input) {
-        reset(); // Start from the initial state
-        for (char c : input.toCharArray()) {
+        int currentState = startState;
+        for (int i = 0, n = input.length(); i < n; i++) {
+            char c = input.charAt(i);
             if (c == ' ') continue; // Ignore spaces
             int nextState = getNextState(currentState, c);
             if (nextState == -1) return false; // Invalid transition
             currentState = nextState;
         }
-        return finalStates.contains(currentState); // Return true if final state reached
+        return acceptMask[currentState] != 0; // Return true if final state reached
     }
 
 
+    // Next state for an equivalence class id (no char lookup)
+    public int getNextStateByClass(int currentState, int classId) {
+        return table[currentState * classCount + classId];
+    }
+
+    public int getAcceptMask(int state) {
+        return acceptMask[state];
+    }
+
+    int[] getClassMap() {
+        return classOf;
+    }
+
+    // Approximate heap size of the tables in bytes
+    long memorySize() {
+        return 64L + 4L * (table.length + acceptMask.length + keywordOf.length + classOf.length + byteClass.length);
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    // Binary layout (big-endian ints): start, stateCount, classCount, classMapLength,
+    // classMap[classMapLength], table[stateCount * classCount], acceptMask[stateCount], keywordOf[stateCount]
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(startState);
+        out.writeInt(stateCount);
+        out.writeInt(classCount);
+        out.writeInt(classOf.length);
+        for (int cls : classOf) {
+            out.writeInt(cls);
+        }
+        for (int i = 0; i < stateCount * classCount; i++) {
+            out.writeInt(table[i]);
+        }
+        for (int i = 0; i < stateCount; i++) {
+            out.writeInt(acceptMask[i]);
+        }
+        for (int i = 0; i < stateCount; i++) {
+            out.writeInt(keywordOf[i]);
+        }
+    }
+
+    // Reads a DFA written by writeTo; the buffer may be memory-mapped
+    public static DFA readFrom(ByteBuffer in) {
+        int startState = in.getInt();
+        int stateCount = in.getInt();
+        int classCount = in.getInt();
+        int classMapLength = in.getInt();
+        if (stateCount <= 0 || classCount < 0 || classMapLength < 0 || startState < 0 || startState >= stateCount) {
+            throw new IllegalArgumentException("Corrupt DFA header");
+        }
+        // Check the sizes against the file before allocating, so a bad count cannot overflow or exhaust the heap
+        long needed = ((long) classMapLength + (long) stateCount * classCount + 2L * stateCount) * Integer.BYTES;
+        if (needed > in.remaining()) {
+            throw new IllegalArgumentException("Corrupt DFA header: tables need " + needed + " bytes, "
+                    + in.remaining() + " left");
+        }
+        int[] classOf = readInts(in, classMapLength);
+        int[] table = readInts(in, stateCount * classCount);
+        int[] acceptMask = readInts(in, stateCount);
+        int[] keywordOf = readInts(in, stateCount);
+
+        for (int cls : classOf) {
+            if (cls < -1 || cls >= classCount) throw new IllegalArgumentException("Corrupt DFA class map");
+        }
+        for (int next : table) {
+            if (next < -1 || next >= stateCount) throw new IllegalArgumentException("Corrupt DFA transition table");
+        }
+        for (int keyword : keywordOf) {
+            if (keyword < -1) throw new IllegalArgumentException("Corrupt DFA keyword table");
+        }
+        return new DFA(startState, classOf, classCount, stateCount, table, acceptMask, keywordOf);
+    }
+
+    private static int[] readInts(ByteBuffer in, int count) {
+        int[] values = new int[count];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    // Printable label for an equivalence class, e.g. "[0-9]" or "a"
+    private String classLabel(int classId) {
+        StringBuilder label = new StringBuilder();
+        int ranges = 0;
+        for (int c = 0; c < classOf.length; c++) {
+            if (classOf[c] != classId) continue;
+            int end = c;
+            while (end + 1 < classOf.length && classOf[end + 1] == classId) end++;
+            label.append((char) c);
+            if (end > c) label.append('-').append((char) end);
+            ranges++;
+            c = end;
+        }
+        return ranges == 1 && label.length() == 1 ? label.toString() : "[" + label + "]";
+    }
+
     public void displayTable() {
         System.out.println("Transition Table:");
         System.out.println("------------------");
         System.out.println("Current State | Input | Next State");
 
-        // Extract transitions and sort by current state
-        List<Map.Entry<String, Integer>> sortedEntries = new ArrayList<>(transitionTable.entrySet());
-        sortedEntries.sort(Comparator.comparingInt(entry -> Integer.parseInt(entry.getKey().split(",")[0])));
+        String[] labels = new String[classCount];
+        for (int cls = 0; cls < classCount; cls++) {
+            labels[cls] = classLabel(cls);
+        }
 
-        // Print the sorted transition table
-        for (Map.Entry<String, Integer> entry : sortedEntries) {
-            System.out.println(entry.getKey().replace(",", "      |   ") + "   |   " + entry.getValue());
+        // Rows are already ordered by state, columns by equivalence class
+        for (int state = 0; state < stateCount; state++) {
+            for (int cls = 0; cls < classCount; cls++) {
+                int next = table[state * classCount + cls];
+                if (next != -1) {
+                    System.out.println(state + "      |   " + labels[cls] + "   |   " + next);
+                }
+            }
         }
     }
 }
@@ -0,0 +1,118 @@
+package com.lexer;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Compiled automata keyed by their rule list (regexes in priority order) and keywords, shared by every
+// LexerSpec in the process. Specs that differ only in rule names, or that compile the same single
+// rule, reuse one DFA instead of running RegexToDFAConverter again. Least recently used entries are
+// evicted once the tables exceed maxBytes. DFAs are read-only after construction, so a cached one
+// can be handed to any number of specs and threads.
+public final class DFACache {
+    public static final long DEFAULT_MAX_BYTES = 16L << 20;
+
+    private static final DFACache SHARED = new DFACache(DEFAULT_MAX_BYTES);
+
+    private final long maxBytes;
+    private final LinkedHashMap<List<List<String>>, DFA> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public DFACache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    public static DFACache shared() {
+        return SHARED;
+    }
+
+    // Combined scanner DFA for the rules, in priority order, and the keywords
+    DFA scanner(List<String> regexes, List<String> keywords) {
+        List<List<String>> key = List.of(List.copyOf(regexes), List.copyOf(keywords));
+        DFA dfa = lookup(key);
+        if (dfa != null) return dfa;
+        // Compile outside the lock; if another thread got there first its DFA is kept
+        return store(key, new RegexToDFAConverter().convertRulesToDFA(key.get(0), key.get(1)));
+    }
+
+    // DFA of a single rule; the same as a one-rule scanner, so both share an entry
+    DFA rule(String regex) {
+        List<List<String>> key = List.of(List.of(regex), List.of());
+        DFA dfa = lookup(key);
+        if (dfa != null) return dfa;
+        return store(key, new RegexToDFAConverter().compileRegex(regex));
+    }
+
+    private synchronized DFA lookup(List<List<String>> key) {
+        DFA dfa = entries.get(key);
+        if (dfa != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return dfa;
+    }
+
+    private synchronized DFA store(List<List<String>> key, DFA dfa) {
+        DFA existing = entries.putIfAbsent(key, dfa);
+        if (existing != null) return existing;
+        bytes += dfa.memorySize();
+        // Evict from the least recently used end, but always keep the entry just added
+        Iterator<Map.Entry<List<List<String>>, DFA>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && entries.size() > 1) {
+            DFA evicted = eldest.next().getValue();
+            eldest.remove();
+            bytes -= evicted.memorySize();
+            evictions++;
+        }
+        return dfa;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Approximate size of the cached tables
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("DFACache[%d entries, %d/%d bytes, %d hits, %d misses, %d evictions]",
+                entries.size(), bytes, maxBytes, hits, misses, evictions);
+    }
+}
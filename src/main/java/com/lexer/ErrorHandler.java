@@ -1,31 +1,121 @@
 package com.lexer;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
+// Collects lexical errors as LexicalError records, or streams them to a sink without keeping them.
+// After maxErrors errors the rest are only counted, so garbage input cannot grow the error list
+// without bound. With panic recovery the scanner turns everything from an unknown token up to the
+// next newline, ';', '{', '}', comment or string into one UNKNOWN token (and one error) instead of
+// one per word.
 public class ErrorHandler {
-    private final List<String> errors;
+    public static final int DEFAULT_MAX_ERRORS = 10_000;
+
+    private final int maxErrors;
+    private final boolean panicRecovery;
+    private final Consumer<LexicalError> sink; // null: keep errors in the list
+    private final List<LexicalError> errors;
+    private int reported;
+    private long suppressed;
 
     public ErrorHandler() {
+        this(DEFAULT_MAX_ERRORS, false, null);
+    }
+
+    public ErrorHandler(int maxErrors, boolean panicRecovery) {
+        this(maxErrors, panicRecovery, null);
+    }
+
+    public ErrorHandler(int maxErrors, boolean panicRecovery, Consumer<LexicalError> sink) {
+        if (maxErrors < 0) {
+            throw new IllegalArgumentException("Error limit must not be negative: " + maxErrors);
+        }
+        this.maxErrors = maxErrors;
+        this.panicRecovery = panicRecovery;
+        this.sink = sink;
         errors = new ArrayList<>();
     }
 
-    public void addError(String message, int lineNumber) {
-        errors.add("Error at line " + lineNumber + ": " + message);
+    public void report(LexicalError error) {
+        if (reported >= maxErrors) {
+            suppressed++;
+            return;
+        }
+        reported++;
+        if (sink != null) {
+            sink.accept(error);
+        } else {
+            errors.add(error);
+        }
     }
 
+    // Counts an error past the limit without its record, so the scanner need not build one
+    void suppress() {
+        suppressed++;
+    }
+
+    // Kept errors; empty when errors go to a sink
+    public List<LexicalError> getErrorRecords() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    // Kept errors formatted as "Error at line N: message", formatted on access
+    public List<String> getErrors() {
+        return new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                return errors.get(index).toString();
+            }
+
+            @Override
+            public int size() {
+                return errors.size();
+            }
+        };
+    }
+
+    // True if any error was found, including errors over the limit (maxErrors 0 keeps none)
     public boolean hasErrors() {
-        return !errors.isEmpty();
+        return getErrorCount() > 0;
+    }
+
+    // All errors found, including those over the limit
+    public long getErrorCount() {
+        return reported + suppressed;
+    }
+
+    public long getSuppressedCount() {
+        return suppressed;
+    }
+
+    public boolean isLimitReached() {
+        return reported >= maxErrors;
+    }
+
+    public int getMaxErrors() {
+        return maxErrors;
+    }
+
+    public boolean isPanicRecovery() {
+        return panicRecovery;
     }
 
     public void printErrors() {
-        if (hasErrors()) {
+        if (getErrorCount() == 0) {
+            System.out.println("\nNo lexical errors found.");
+            return;
+        }
+        if (!errors.isEmpty()) {
             System.out.println("\nLexical Errors:");
-            for (String error : errors) {
+            for (LexicalError error : errors) {
                 System.out.println(error);
             }
-        } else {
-            System.out.println("\nNo lexical errors found.");
+        }
+        if (suppressed > 0) {
+            System.out.println("... " + suppressed + " more errors not shown (limit " + maxErrors + ")");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,50 @@
+package com.lexer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Global scope shared by the sessions lexing the files of one program: @global identifiers and
+// function definitions. Any number of threads may insert at once. As with SymbolTable.insert, the
+// first insertion of a name wins; across files that is whichever session gets there first.
+// File-local scopes stay in each session's own SymbolTable.
+public final class GlobalSymbolTable {
+    private static final String SCOPE = "global";
+
+    // Lock-free reads; writes only lock the hash bin they land in
+    private final ConcurrentHashMap<String, Symbol> symbols = new ConcurrentHashMap<>();
+
+    // True if this call inserted the symbol
+    public boolean insert(String name, String type, String value) {
+        // Re-declarations are the common case and need neither a lock nor a new Symbol
+        if (symbols.containsKey(name)) return false;
+        return symbols.putIfAbsent(name, new Symbol(name, type, SCOPE, value)) == null;
+    }
+
+    public boolean exists(String name) {
+        return symbols.containsKey(name);
+    }
+
+    public Symbol get(String name) {
+        return symbols.get(name);
+    }
+
+    public int size() {
+        return symbols.size();
+    }
+
+    // Snapshot sorted by name (iteration order of a concurrent map is arbitrary)
+    public List<Symbol> getSymbols() {
+        List<Symbol> list = new ArrayList<>(symbols.values());
+        list.sort(Comparator.comparing(Symbol::getName));
+        return list;
+    }
+
+    public void printTable() {
+        System.out.println("\n--- Global Symbol Table ---");
+        for (Symbol symbol : getSymbols()) {
+            System.out.println(symbol);
+        }
+    }
+}
@@ -0,0 +1,608 @@
+package com.lexer;
+
+import com.lexer.LexicalAnalyzer.ScopeState;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Keeps the tokens, symbols and errors of an edited document up to date without re-lexing all of it.
+//
+// An edit re-scans from the first token whose scan looked at an edited byte, and stops as soon as
+// the new scan lines up with an old token past the edit again: same start, same scan start (so the
+// same bytes lie ahead) and the same scope state. Tokens and errors are kept in gap buffers whose gap
+// sits at the last edit; positions after the gap are shifted lazily, so an edit costs time in
+// proportion to the re-lexed region and its distance from the previous edit, not to the document size.
+//
+// Offsets are UTF-8 byte offsets, as in Token.getOffset().
+public final class IncrementalLexer {
+    private static final int SCAN_BUFFER_SIZE = 4096;
+
+    private final LexerSpec spec;
+    private final LexicalAnalyzer session;
+    private final ScopeState initialScope;
+    private final Text text = new Text();
+    // Tokens in document order, followed by one end entry that holds errors after the last token
+    private final GapList<Entry> entries = new GapList<>();
+    private final GapList<ErrorEntry> errors = new GapList<>();
+    // Symbol table key -> insertions of that symbol; the first one in document order is in the table
+    private final Map<String, SymbolSlot> slots = new HashMap<>();
+    private final SymbolTable symbols = new SymbolTable();
+    private final ScanListener listener = new ScanListener();
+    private int relexed;
+
+    // Symbol insertion and errors reported while scanning and classifying the current token
+    private Symbol pendingSymbol;
+    private boolean pendingLiteral;
+    private final List<ErrorEntry> pendingErrors = new ArrayList<>();
+
+    public IncrementalLexer(LexerSpec spec, String text) {
+        this.spec = spec;
+        this.session = new LexicalAnalyzer(spec, new RecordingSymbolTable(), new RecordingErrorHandler());
+        this.initialScope = session.saveScope();
+        Entry end = new Entry();
+        end.extent = 1;
+        end.line = 1;
+        end.value = "";
+        end.rule = -1;
+        end.scopeAfter = initialScope;
+        entries.insert(end);
+        edit(0, 0, text);
+    }
+
+    public IncrementalLexer(String text) {
+        this(LexerSpec.defaultSpec(), text);
+    }
+
+    // Replaces deletedLength bytes at offset with the inserted text and re-lexes the damaged region
+    public void edit(int offset, int deletedLength, String inserted) {
+        if (offset < 0 || deletedLength < 0 || offset + deletedLength > text.length()) {
+            throw new IndexOutOfBoundsException("Edit [" + offset + ", " + (offset + deletedLength)
+                    + ") out of bounds for length " + text.length());
+        }
+        byte[] bytes = inserted.getBytes(StandardCharsets.UTF_8);
+        int editEnd = offset + bytes.length;
+
+        // Restart where the scan of the first affected token began; everything before is unchanged
+        int first = firstEntryScannedPast(offset);
+        Entry restart = entries.get(first);
+        int restartOffset = offsetOf(restart, restart.scanStart);
+        int restartLine = 1;
+        int maxExtent = 0;
+        ScopeState scope = initialScope;
+        if (first > 0) {
+            Entry previous = entries.get(first - 1);
+            restartLine = lineOf(previous) + newlines(previous.value);
+            maxExtent = offsetOf(previous, previous.extent);
+            scope = previous.scopeAfter;
+        }
+        entries.moveGap(first);
+        errors.moveGap(firstErrorFrom(restartOffset));
+
+        int lineDelta = newlines(inserted) - text.replace(offset, deletedLength, bytes);
+        entries.shift(bytes.length - deletedLength, lineDelta);
+        errors.shift(bytes.length - deletedLength, lineDelta);
+
+        session.restoreScope(scope);
+        ScopeState oldScope = scope; // scope state before the next old entry
+        ScopeState lastScope = scope;
+        List<String> dirty = new ArrayList<>();
+        Entry resync = null;
+        int scanStart = restartOffset;
+        relexed = 0;
+        listener.lineBase = restartLine;
+        TokenScanner scanner = new TokenScanner(spec, text.channel(restartOffset), SCAN_BUFFER_SIZE,
+                session.getStringPool(), listener);
+        try {
+            while (scanner.advanceRaw()) {
+                int start = restartOffset + (int) scanner.offset();
+                // Drop the old entries the new scan has passed, or stop at one it lines up with.
+                // The end entry is never passed, so there is always an old entry here.
+                while (true) {
+                    Entry old = entries.afterGap();
+                    int oldStart = offsetOf(old, old.start);
+                    if (oldStart > start) break;
+                    if (oldStart == start && scanStart >= editEnd && offsetOf(old, old.scanStart) == scanStart) {
+                        resync = old;
+                        break;
+                    }
+                    oldScope = old.scopeAfter;
+                    removeEntry(dirty);
+                }
+                if (resync != null) {
+                    pendingErrors.clear(); // the old entry already has the errors before it
+                    break;
+                }
+
+                Entry entry = new Entry();
+                entry.scanStart = scanStart;
+                entry.start = start;
+                entry.length = scanner.currentLength();
+                entry.line = restartLine + scanner.currentLine() - 1;
+                entry.rule = scanner.currentRule();
+                entry.keyword = scanner.currentKeyword();
+                entry.value = scanner.text(entry.length);
+                classify(entry, scanner);
+                maxExtent = Math.max(maxExtent, start + scanner.scannedLength());
+                entry.extent = maxExtent;
+                if (entry.scopeAfter.equals(lastScope)) entry.scopeAfter = lastScope;
+                lastScope = entry.scopeAfter;
+                addEntry(entry);
+                scanStart = start + entry.length;
+                scanner.consume();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (resync == null) {
+            // Reached the end of the input: whatever is left of the old list is replaced
+            while (entries.hasAfterGap()) {
+                removeEntry(dirty);
+            }
+            Entry end = new Entry();
+            end.scanStart = scanStart;
+            end.start = text.length();
+            end.extent = Math.max(maxExtent, text.length() + 1);
+            end.line = restartLine + scanner.getLineNumber() - 1;
+            end.value = "";
+            end.rule = -1;
+            end.scopeAfter = session.saveScope();
+            addEntry(end);
+        } else {
+            // Same tokens from here on; re-classify them while the scope state still differs
+            Entry next = resync;
+            while (!session.saveScope().equals(oldScope) && next.type != null) {
+                oldScope = next.scopeAfter;
+                entries.moveGap(entries.gap() + 1);
+                errors.moveGap(errors.gap() + next.errorCount);
+                removeSymbol(next, dirty);
+                classify(next, session.hold(next.value));
+                pendingErrors.clear(); // unchanged, already recorded
+                addSymbol(next);
+                maxExtent = Math.max(maxExtent, next.extent);
+                next.extent = maxExtent;
+                next = entries.afterGap();
+            }
+            // Keep extents non-decreasing so the restart search stays a binary search
+            for (int i = entries.gap(); i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                if (offsetOf(entry, entry.extent) >= maxExtent) break;
+                entry.extent = maxExtent - entries.offsetShift;
+            }
+        }
+        resolveSymbols(dirty);
+    }
+
+    // Sets type, symbol and scope state of a scanned token through the session
+    private void classify(Entry entry, TokenScanner lexeme) {
+        if (entry.rule == -1) {
+            session.unknown(lexeme, entry.length, entry.line);
+            entry.type = "UNKNOWN";
+        } else {
+            entry.type = session.classify(entry.rule, entry.keyword, lexeme, entry.length);
+        }
+        entry.symbol = pendingSymbol;
+        entry.literal = pendingLiteral;
+        pendingSymbol = null;
+        entry.scopeAfter = session.saveScope();
+        relexed++;
+    }
+
+    private void addEntry(Entry entry) {
+        for (ErrorEntry error : pendingErrors) {
+            error.key = entry.scanStart;
+            errors.insert(error);
+        }
+        entry.errorCount = pendingErrors.size();
+        pendingErrors.clear();
+        addSymbol(entry);
+        entries.insert(entry);
+    }
+
+    // Removes the first old entry after the gap together with its errors and symbol insertion
+    private void removeEntry(List<String> dirty) {
+        Entry old = entries.removeAfterGap();
+        for (int i = 0; i < old.errorCount; i++) {
+            errors.removeAfterGap();
+        }
+        removeSymbol(old, dirty);
+    }
+
+    private void addSymbol(Entry entry) {
+        if (entry.symbol == null) return;
+        SymbolSlot slot = slots.computeIfAbsent(key(entry), key -> new SymbolSlot(entry.symbol, entry.literal));
+        slot.count++;
+        // The entry is before the gap, so it precedes any winner after the gap
+        if (slot.winner == null || slot.winner.afterGap) {
+            slot.winner = entry;
+            symbols.put(entry.symbol, entry.literal);
+        }
+    }
+
+    private void removeSymbol(Entry entry, List<String> dirty) {
+        if (entry.symbol == null) return;
+        String key = key(entry);
+        SymbolSlot slot = slots.get(key);
+        slot.count--;
+        if (slot.winner == entry) {
+            slot.winner = null;
+            dirty.add(key);
+        }
+    }
+
+    // Symbols whose first insertion was removed and not replaced by a re-lexed token. None can be
+    // left before the re-lexed region (the removed one was the first), so search after it.
+    private void resolveSymbols(List<String> dirty) {
+        for (String key : dirty) {
+            SymbolSlot slot = slots.get(key);
+            if (slot == null || slot.winner != null) continue;
+            if (slot.count == 0) {
+                slots.remove(key);
+                symbols.remove(slot.name, slot.scope, slot.literal);
+                continue;
+            }
+            for (int i = entries.gap(); i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                if (entry.symbol != null && key(entry).equals(key)) {
+                    slot.winner = entry;
+                    symbols.put(entry.symbol, entry.literal);
+                    break;
+                }
+            }
+        }
+    }
+
+    // Literals and identifiers are separate key spaces in the symbol table
+    private static String key(Entry entry) {
+        return (entry.literal ? "literal:" : "") + entry.symbol.getName() + ":" + entry.symbol.getScope();
+    }
+
+    // Index of the first entry whose scan looked at the byte at offset (or beyond)
+    private int firstEntryScannedPast(int offset) {
+        int low = 0;
+        int high = entries.size() - 1; // the end entry always qualifies
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            Entry entry = entries.get(mid);
+            if (offsetOf(entry, entry.extent) > offset) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private int firstErrorFrom(int offset) {
+        int low = 0;
+        int high = errors.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            ErrorEntry error = errors.get(mid);
+            if (error.key + (error.afterGap ? errors.offsetShift : 0) >= offset) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private int offsetOf(Entry entry, int stored) {
+        return entry.afterGap ? stored + entries.offsetShift : stored;
+    }
+
+    private int lineOf(Entry entry) {
+        return entry.afterGap ? entry.line + entries.lineShift : entry.line;
+    }
+
+    private static int newlines(String value) {
+        int count = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '\n') count++;
+        }
+        return count;
+    }
+
+    // Current tokens; each get() builds a Token for the entry's current position
+    public List<Token> getTokens() {
+        return new AbstractList<>() {
+            @Override
+            public Token get(int index) {
+                Entry entry = entries.get(Objects.checkIndex(index, size()));
+                return new Token(entry.type, entry.value, null, offsetOf(entry, entry.start), entry.length, lineOf(entry));
+            }
+
+            @Override
+            public int size() {
+                return entries.size() - 1;
+            }
+        };
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbols;
+    }
+
+    // Errors in document order, formatted like ErrorHandler
+    public List<String> getErrors() {
+        List<String> result = new ArrayList<>(errors.size());
+        for (int i = 0; i < errors.size(); i++) {
+            ErrorEntry error = errors.get(i);
+            int line = error.afterGap ? error.line + errors.lineShift : error.line;
+            result.add("Error at line " + line + ": " + error.message);
+        }
+        return result;
+    }
+
+    public String getText() {
+        return text.toString();
+    }
+
+    // Tokens scanned or re-classified by the last edit
+    public int getRelexedTokenCount() {
+        return relexed;
+    }
+
+    // Records symbol insertions instead of applying them; the first per key is applied later
+    private final class RecordingSymbolTable extends SymbolTable {
+        @Override
+        public void insert(String name, String type, String scope, String value) {
+            pendingSymbol = new Symbol(name, type, scope, value);
+            pendingLiteral = false;
+        }
+
+        @Override
+        public void insertLiteral(String value, String type, String scope) {
+            pendingSymbol = new Symbol(value, type, scope, value);
+            pendingLiteral = true;
+        }
+
+        @Override
+        public boolean exists(String name, String scope) {
+            return false; // insertions are first-wins anyway
+        }
+    }
+
+    private final class RecordingErrorHandler extends ErrorHandler {
+        @Override
+        public void report(LexicalError error) {
+            pendingErrors.add(new ErrorEntry(error.message(), error.line()));
+        }
+    }
+
+    private final class ScanListener implements TokenScanner.RegionListener {
+        int lineBase;
+
+        @Override
+        public void lexicalError(LexicalError error) {
+            pendingErrors.add(new ErrorEntry(error.message(), lineBase + error.line() - 1));
+        }
+
+        @Override
+        public boolean lineStart(int offset) {
+            return false;
+        }
+    }
+
+    private static final class SymbolSlot {
+        final String name;
+        final String scope;
+        final boolean literal;
+        int count;
+        Entry winner;
+
+        SymbolSlot(Symbol symbol, boolean literal) {
+            this.name = symbol.getName();
+            this.scope = symbol.getScope();
+            this.literal = literal;
+        }
+    }
+
+    // Element of a GapList: positions are absolute before the gap and relative to the list's
+    // pending shift after it
+    private abstract static class Item {
+        boolean afterGap;
+
+        abstract void shift(int offsetDelta, int lineDelta);
+    }
+
+    private static final class Entry extends Item {
+        int scanStart; // where the scan for this token began (end of the previous token)
+        int start;
+        int length;
+        int extent;    // end of the bytes its scan looked at; non-decreasing along the list
+        int line;
+        int rule;      // -1 for an unknown word
+        int keyword;   // scanner keyword index, or -1
+        String type;   // null for the end entry
+        String value;
+        Symbol symbol; // symbol table insertion made by this token, if any
+        boolean literal;
+        int errorCount;
+        ScopeState scopeAfter;
+
+        @Override
+        void shift(int offsetDelta, int lineDelta) {
+            scanStart += offsetDelta;
+            start += offsetDelta;
+            extent += offsetDelta;
+            line += lineDelta;
+        }
+    }
+
+    private static final class ErrorEntry extends Item {
+        final String message;
+        int line;
+        int key; // scan start of the owning entry
+
+        ErrorEntry(String message, int line) {
+            this.message = message;
+            this.line = line;
+        }
+
+        @Override
+        void shift(int offsetDelta, int lineDelta) {
+            key += offsetDelta;
+            line += lineDelta;
+        }
+    }
+
+    // Array with a movable gap; items after the gap still need offsetShift/lineShift added
+    private static final class GapList<T extends Item> {
+        private Item[] items = new Item[16];
+        private int gapStart;
+        private int gapEnd = items.length;
+        int offsetShift;
+        int lineShift;
+
+        int size() {
+            return items.length - (gapEnd - gapStart);
+        }
+
+        int gap() {
+            return gapStart;
+        }
+
+        @SuppressWarnings("unchecked")
+        T get(int index) {
+            return (T) items[index < gapStart ? index : index + gapEnd - gapStart];
+        }
+
+        boolean hasAfterGap() {
+            return gapEnd < items.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        T afterGap() {
+            return (T) items[gapEnd];
+        }
+
+        void shift(int offsetDelta, int lineDelta) {
+            offsetShift += offsetDelta;
+            lineShift += lineDelta;
+        }
+
+        void moveGap(int index) {
+            while (gapStart > index) {
+                Item item = items[--gapStart];
+                items[gapStart] = null;
+                item.shift(-offsetShift, -lineShift);
+                item.afterGap = true;
+                items[--gapEnd] = item;
+            }
+            while (gapStart < index) {
+                Item item = items[gapEnd];
+                items[gapEnd++] = null;
+                item.shift(offsetShift, lineShift);
+                item.afterGap = false;
+                items[gapStart++] = item;
+            }
+        }
+
+        void insert(T item) {
+            if (gapStart == gapEnd) {
+                Item[] grown = new Item[items.length * 2];
+                int tail = items.length - gapEnd;
+                System.arraycopy(items, 0, grown, 0, gapStart);
+                System.arraycopy(items, gapEnd, grown, grown.length - tail, tail);
+                gapEnd = grown.length - tail;
+                items = grown;
+            }
+            item.afterGap = false;
+            items[gapStart++] = item;
+        }
+
+        @SuppressWarnings("unchecked")
+        T removeAfterGap() {
+            T item = (T) items[gapEnd];
+            items[gapEnd++] = null;
+            return item;
+        }
+    }
+
+    // Document bytes in a gap buffer
+    private static final class Text {
+        private byte[] data = new byte[1024];
+        private int gapStart;
+        private int gapEnd = data.length;
+
+        int length() {
+            return data.length - (gapEnd - gapStart);
+        }
+
+        // Replaces [offset, offset + deleted) with the inserted bytes; returns the newlines deleted
+        int replace(int offset, int deleted, byte[] inserted) {
+            moveGap(offset);
+            int newlines = 0;
+            for (int i = gapEnd; i < gapEnd + deleted; i++) {
+                if (data[i] == '\n') newlines++;
+            }
+            gapEnd += deleted;
+            if (gapEnd - gapStart < inserted.length) {
+                byte[] grown = new byte[Math.max(data.length * 2, length() + inserted.length + 1024)];
+                int tail = data.length - gapEnd;
+                System.arraycopy(data, 0, grown, 0, gapStart);
+                System.arraycopy(data, gapEnd, grown, grown.length - tail, tail);
+                gapEnd = grown.length - tail;
+                data = grown;
+            }
+            System.arraycopy(inserted, 0, data, gapStart, inserted.length);
+            gapStart += inserted.length;
+            return newlines;
+        }
+
+        private void moveGap(int index) {
+            if (index < gapStart) {
+                int count = gapStart - index;
+                System.arraycopy(data, index, data, gapEnd - count, count);
+                gapStart -= count;
+                gapEnd -= count;
+            } else if (index > gapStart) {
+                int count = index - gapStart;
+                System.arraycopy(data, gapEnd, data, gapStart, count);
+                gapStart += count;
+                gapEnd += count;
+            }
+        }
+
+        // Reads the document from position to the end
+        ReadableByteChannel channel(int position) {
+            return new ReadableByteChannel() {
+                private int next = position;
+
+                @Override
+                public int read(ByteBuffer dst) {
+                    if (next >= length()) return -1;
+                    int physical = next < gapStart ? next : next + gapEnd - gapStart;
+                    int end = next < gapStart ? gapStart : data.length;
+                    int count = Math.min(end - physical, dst.remaining());
+                    dst.put(data, physical, count);
+                    next += count;
+                    return count;
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return true;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            byte[] bytes = new byte[length()];
+            System.arraycopy(data, 0, bytes, 0, gapStart);
+            System.arraycopy(data, gapEnd, bytes, gapStart, data.length - gapEnd);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
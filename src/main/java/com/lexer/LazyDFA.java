@@ -0,0 +1,337 @@
+package com.lexer;
+
+import java.util.*;
+
+// Scanner automaton built on the fly: each DFA state is a set of NFA states, created the first time
+// the input reaches it and cached in a table bounded by cacheBytes. When the table is full it is
+// flushed down to the start state; after MAX_FLUSHES flushes the input evidently keeps visiting new
+// states, so the automaton stops caching and simulates the NFA directly. Accepts exactly what the
+// minimized DFA of the same rules accepts, with the same -1 (dead) transitions.
+// One instance per scanner: it is not thread-safe, but instances share one immutable Program.
+final class LazyDFA implements Automaton {
+    static final int MAX_FLUSHES = 8;
+    private static final int UNKNOWN = -2; // table entry not computed yet
+    private static final int STATE_OVERHEAD = 64; // set array header, map entry and key, per state
+
+    // The combined NFA in flat arrays, plus its character classes. Built by RegexToDFAConverter.
+    static final class Program {
+        final int[] byteClass = new int[256]; // byte -> class id, -1 = no rule uses it
+        final int classCount;
+        final char[] representative;          // class id -> a character of the class
+        final int[][] closure;    // NFA state -> epsilon closure, sorted, only states that can still accept
+        final char[][] rangeFrom; // NFA state -> its range transitions
+        final char[][] rangeTo;
+        final int[][] rangeTarget;
+        final int[] ruleBit;      // NFA state -> 1 << rule for final states, else 0
+        final int[] keyword;      // NFA state -> keyword index, or -1
+        final int[] start;
+
+        Program(NFA nfa, int stateCount, int[] classOf, int classCount) {
+            Arrays.fill(byteClass, -1);
+            System.arraycopy(classOf, 0, byteClass, 0, Math.min(classOf.length, 256));
+            this.classCount = classCount;
+            this.representative = new char[classCount];
+            for (int c = classOf.length - 1; c >= 0; c--) {
+                if (classOf[c] >= 0) {
+                    representative[classOf[c]] = (char) c;
+                }
+            }
+
+            State[] states = new State[stateCount];
+            Queue<State> queue = new ArrayDeque<>();
+            states[nfa.startState.id] = nfa.startState;
+            queue.add(nfa.startState);
+            while (!queue.isEmpty()) {
+                State state = queue.poll();
+                List<State> successors = new ArrayList<>(state.epsilonTransitions);
+                for (State.RangeTransition transition : state.transitions) {
+                    successors.add(transition.target);
+                }
+                for (State next : successors) {
+                    if (states[next.id] == null) {
+                        states[next.id] = next;
+                        queue.add(next);
+                    }
+                }
+            }
+
+            this.ruleBit = new int[stateCount];
+            this.keyword = new int[stateCount];
+            this.rangeFrom = new char[stateCount][];
+            this.rangeTo = new char[stateCount][];
+            this.rangeTarget = new int[stateCount][];
+            List<List<Integer>> predecessors = new ArrayList<>();
+            for (int s = 0; s < stateCount; s++) {
+                predecessors.add(new ArrayList<>());
+            }
+            for (int s = 0; s < stateCount; s++) {
+                State state = states[s];
+                keyword[s] = state == null ? -1 : state.acceptKeyword;
+                if (state == null) {
+                    rangeFrom[s] = new char[0];
+                    rangeTo[s] = new char[0];
+                    rangeTarget[s] = new int[0];
+                    continue;
+                }
+                if (nfa.finalStates.contains(state)) {
+                    ruleBit[s] = 1 << state.acceptRule;
+                }
+                int n = state.transitions.size();
+                rangeFrom[s] = new char[n];
+                rangeTo[s] = new char[n];
+                rangeTarget[s] = new int[n];
+                for (int i = 0; i < n; i++) {
+                    State.RangeTransition transition = state.transitions.get(i);
+                    rangeFrom[s][i] = transition.from;
+                    rangeTo[s][i] = transition.to;
+                    rangeTarget[s][i] = transition.target.id;
+                    predecessors.get(transition.target.id).add(s);
+                }
+                for (State next : state.epsilonTransitions) {
+                    predecessors.get(next.id).add(s);
+                }
+            }
+
+            // States that can still reach an accepting or keyword state; the rest are dropped from
+            // every set, so a set with nothing left is the dead state the minimized DFA leaves out
+            boolean[] live = new boolean[stateCount];
+            Deque<Integer> work = new ArrayDeque<>();
+            for (int s = 0; s < stateCount; s++) {
+                if (ruleBit[s] != 0 || keyword[s] >= 0) {
+                    live[s] = true;
+                    work.add(s);
+                }
+            }
+            while (!work.isEmpty()) {
+                for (int p : predecessors.get(work.poll())) {
+                    if (!live[p]) {
+                        live[p] = true;
+                        work.add(p);
+                    }
+                }
+            }
+
+            this.closure = new int[stateCount][];
+            for (int s = 0; s < stateCount; s++) {
+                closure[s] = states[s] == null ? new int[0] : epsilonClosure(states[s], live);
+            }
+            this.start = closure[nfa.startState.id];
+        }
+
+        private static int[] epsilonClosure(State from, boolean[] live) {
+            Set<State> seen = new HashSet<>();
+            Deque<State> queue = new ArrayDeque<>();
+            seen.add(from);
+            queue.add(from);
+            while (!queue.isEmpty()) {
+                for (State next : queue.poll().epsilonTransitions) {
+                    if (seen.add(next)) {
+                        queue.add(next);
+                    }
+                }
+            }
+            return seen.stream().mapToInt(s -> s.id).filter(id -> live[id]).sorted().toArray();
+        }
+
+        int nfaStateCount() {
+            return ruleBit.length;
+        }
+
+        // Approximate size of one cached state holding the given number of NFA states
+        long stateBytes(int setSize) {
+            return STATE_OVERHEAD + 4L * (classCount + 2 + setSize);
+        }
+
+        // Smallest cache that can hold the start state and the two states a step moves between
+        long minimumCacheBytes() {
+            return 3 * stateBytes(nfaStateCount());
+        }
+    }
+
+    // NFA state set as a map key
+    private record StateSet(int[] ids) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StateSet other && Arrays.equals(ids, other.ids);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(ids);
+        }
+    }
+
+    private final Program program;
+    private final int[] byteClass;
+    private final int classCount;
+    private final long cacheBytes;
+    private final Map<StateSet, Integer> stateIds = new HashMap<>();
+    private int[] table = new int[0]; // table[state * classCount + classId] -> next state, -1 dead, UNKNOWN
+    private int[] acceptMask = new int[0];
+    private int[] keywordOf = new int[0];
+    private int[][] sets = new int[0][];
+    private int stateCount;
+    private long bytes;
+    private int flushes;
+    private boolean simulating; // cache given up: states 1 and 2 take turns holding the current set
+
+    // Scratch space for computing one move
+    private final boolean[] inSet;
+    private int[] moved;
+
+    LazyDFA(Program program, long cacheBytes) {
+        if (cacheBytes < program.minimumCacheBytes()) {
+            throw new IllegalArgumentException("Lazy DFA cache of " + cacheBytes + " bytes is below the minimum of "
+                    + program.minimumCacheBytes() + " for these rules");
+        }
+        this.program = program;
+        this.byteClass = program.byteClass;
+        this.classCount = program.classCount;
+        this.cacheBytes = cacheBytes;
+        this.inSet = new boolean[program.nfaStateCount()];
+        this.moved = new int[16];
+        addState(program.start);
+    }
+
+    public int getStartState() {
+        return 0;
+    }
+
+    public int nextState(int state, int b) {
+        int cls = byteClass[b];
+        if (cls < 0) return -1;
+        int next = table[state * classCount + cls];
+        return next != UNKNOWN ? next : computeNext(state, cls);
+    }
+
+    public int getAcceptMask(int state) {
+        return acceptMask[state];
+    }
+
+    public int getKeyword(int state) {
+        return keywordOf[state];
+    }
+
+    // States currently in the cache
+    int getStateCount() {
+        return stateCount;
+    }
+
+    int getFlushCount() {
+        return flushes;
+    }
+
+    boolean isSimulating() {
+        return simulating;
+    }
+
+    // Approximate size of the cached states
+    long memorySize() {
+        return bytes;
+    }
+
+    private int computeNext(int state, int cls) {
+        int[] ids = move(sets[state], program.representative[cls]);
+        if (simulating) {
+            if (ids.length == 0) return -1;
+            int slot = state == 1 ? 2 : 1;
+            setState(slot, ids);
+            return slot;
+        }
+        if (ids.length == 0) {
+            table[state * classCount + cls] = -1;
+            return -1;
+        }
+        StateSet key = new StateSet(ids);
+        Integer known = stateIds.get(key);
+        if (known != null) {
+            table[state * classCount + cls] = known;
+            return known;
+        }
+        if (bytes + program.stateBytes(ids.length) <= cacheBytes) {
+            int next = addState(ids);
+            table[state * classCount + cls] = next;
+            return next;
+        }
+
+        // Full: keep only the start state. The source state is gone, so the edge is not recorded.
+        flush();
+        if (flushes > MAX_FLUSHES) {
+            simulating = true;
+            stateIds.clear();
+            setState(1, ids);
+            return 1;
+        }
+        known = stateIds.get(key);
+        return known != null ? known : addState(ids);
+    }
+
+    // Union of the closures of every NFA state the set reaches on c
+    private int[] move(int[] set, char c) {
+        int count = 0;
+        for (int s : set) {
+            char[] from = program.rangeFrom[s];
+            char[] to = program.rangeTo[s];
+            for (int i = 0; i < from.length; i++) {
+                if (c < from[i] || c > to[i]) continue;
+                for (int t : program.closure[program.rangeTarget[s][i]]) {
+                    if (inSet[t]) continue;
+                    inSet[t] = true;
+                    if (count == moved.length) {
+                        moved = Arrays.copyOf(moved, count * 2);
+                    }
+                    moved[count++] = t;
+                }
+            }
+        }
+        int[] ids = Arrays.copyOf(moved, count);
+        for (int t : ids) {
+            inSet[t] = false;
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private int addState(int[] ids) {
+        int state = stateCount;
+        setState(state, ids);
+        stateIds.put(new StateSet(ids), state);
+        bytes += program.stateBytes(ids.length);
+        return state;
+    }
+
+    // Puts the set in a state's row; new rows start with every transition unknown
+    private void setState(int state, int[] ids) {
+        if (state >= acceptMask.length) {
+            int capacity = acceptMask.length;
+            int newCapacity = Math.max(state + 1, capacity * 2);
+            table = Arrays.copyOf(table, newCapacity * classCount);
+            Arrays.fill(table, capacity * classCount, table.length, UNKNOWN);
+            acceptMask = Arrays.copyOf(acceptMask, newCapacity);
+            keywordOf = Arrays.copyOf(keywordOf, newCapacity);
+            sets = Arrays.copyOf(sets, newCapacity);
+        }
+        int mask = 0;
+        int keyword = -1;
+        for (int s : ids) {
+            mask |= program.ruleBit[s];
+            if (program.keyword[s] >= 0) {
+                keyword = program.keyword[s];
+            }
+        }
+        acceptMask[state] = mask;
+        keywordOf[state] = keyword;
+        sets[state] = ids;
+        stateCount = Math.max(stateCount, state + 1);
+    }
+
+    private void flush() {
+        flushes++;
+        Arrays.fill(table, 0, stateCount * classCount, UNKNOWN);
+        Arrays.fill(sets, 1, stateCount, null);
+        stateIds.clear();
+        stateIds.put(new StateSet(program.start), 0);
+        stateCount = 1;
+        bytes = program.stateBytes(program.start.length);
+    }
+}
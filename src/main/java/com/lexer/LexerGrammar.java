@@ -0,0 +1,155 @@
+package com.lexer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// Token rules, keywords and word delimiters as written in a grammar file (see xcl.grammar for the
+// format). Parsing only checks the syntax; LexerSpec compiles a grammar and checks its rules.
+public final class LexerGrammar {
+    private static final String DEFAULT_RESOURCE = "xcl.grammar";
+    private static final String WHITESPACE = " \t\r\n";
+
+    public enum Kind { TOKEN, LITERAL, SKIP }
+
+    public record Rule(String name, String regex, Kind kind) {
+    }
+
+    private final List<Rule> rules;
+    private final Set<String> keywords;
+    private final String delimiters;
+
+    public LexerGrammar(List<Rule> rules, Collection<String> keywords, String delimiters) {
+        if (rules.isEmpty()) {
+            throw new IllegalArgumentException("A grammar needs at least one rule");
+        }
+        if (rules.size() > Integer.SIZE) {
+            throw new IllegalArgumentException("Too many rules: " + rules.size() + " (at most " + Integer.SIZE + ")");
+        }
+        Set<String> names = new HashSet<>();
+        for (Rule rule : rules) {
+            if (!names.add(rule.name())) {
+                throw new IllegalArgumentException("Duplicate rule name: " + rule.name());
+            }
+            checkAscii("Rule " + rule.name(), rule.regex());
+        }
+        for (String keyword : keywords) {
+            checkAscii("Keyword " + keyword, keyword);
+        }
+        this.rules = List.copyOf(rules);
+        this.keywords = Collections.unmodifiableSet(new LinkedHashSet<>(keywords));
+        this.delimiters = delimiters;
+    }
+
+    // Grammar of the built-in .xcl language
+    public static LexerGrammar defaultGrammar() {
+        try (InputStream in = LexerGrammar.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing resource " + DEFAULT_RESOURCE);
+            }
+            return parse(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static LexerGrammar load(Path file) throws IOException {
+        return parse(Files.readString(file));
+    }
+
+    public static LexerGrammar parse(String source) {
+        List<Rule> rules = new ArrayList<>();
+        List<String> keywords = new ArrayList<>();
+        String delimiters = null;
+        String[] lines = source.split("\r?\n|\r");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            int equals = line.indexOf('=');
+            if (equals < 0) {
+                throw syntaxError(i, "expected 'rule NAME = REGEX', 'skip NAME = REGEX', 'keywords = ...' or 'delimiters = ...'");
+            }
+            String[] head = line.substring(0, equals).strip().split("\\s+");
+            String value = line.substring(equals + 1).strip();
+            switch (head[0]) {
+                case "rule", "skip" -> {
+                    boolean skip = head[0].equals("skip");
+                    boolean literal = head.length == 3 && head[2].equals("literal") && !skip;
+                    if (head.length != 2 && !literal) {
+                        throw syntaxError(i, skip ? "expected 'skip NAME = REGEX'" : "expected 'rule NAME [literal] = REGEX'");
+                    }
+                    if (!head[1].matches("[A-Za-z_][A-Za-z0-9_]*")) {
+                        throw syntaxError(i, "invalid rule name '" + head[1] + "'");
+                    }
+                    if (value.isEmpty()) {
+                        throw syntaxError(i, "empty regex for rule " + head[1]);
+                    }
+                    rules.add(new Rule(head[1], value, skip ? Kind.SKIP : literal ? Kind.LITERAL : Kind.TOKEN));
+                }
+                case "keywords" -> {
+                    if (head.length != 1) throw syntaxError(i, "expected 'keywords = WORD...'");
+                    if (!value.isEmpty()) keywords.addAll(Arrays.asList(value.split("\\s+")));
+                }
+                case "delimiters" -> {
+                    if (head.length != 1) throw syntaxError(i, "expected 'delimiters = CHARS'");
+                    delimiters = value;
+                }
+                default -> throw syntaxError(i, "unknown directive '" + head[0] + "'");
+            }
+        }
+        try {
+            return new LexerGrammar(rules, keywords, delimiters == null ? "" : delimiters);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid grammar: " + e.getMessage(), e);
+        }
+    }
+
+    // The automaton runs over UTF-8 bytes and a regex character is one byte, so a non-ASCII character
+    // would match the wrong byte. Non-ASCII text is still matched by negated classes like [^"].
+    private static void checkAscii(String what, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0x7F) {
+                throw new IllegalArgumentException(what + ": non-ASCII character '"
+                        + Character.toString(text.codePointAt(i)) + "' (only ASCII can be written in rules)");
+            }
+        }
+    }
+
+    private static IllegalArgumentException syntaxError(int line, String message) {
+        return new IllegalArgumentException("Grammar line " + (line + 1) + ": " + message);
+    }
+
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    public Set<String> getKeywords() {
+        return keywords;
+    }
+
+    // Characters that end a word besides whitespace
+    public String getDelimiters() {
+        return delimiters;
+    }
+
+    // Delimiter lookup table for ASCII; whitespace always ends a word
+    boolean[] delimiterTable() {
+        boolean[] table = new boolean[128];
+        for (char c : (WHITESPACE + delimiters).toCharArray()) {
+            if (c < 128) table[c] = true;
+        }
+        return table;
+    }
+
+    List<String> regexes() {
+        List<String> regexes = new ArrayList<>(rules.size());
+        for (Rule rule : rules) {
+            regexes.add(rule.regex());
+        }
+        return regexes;
+    }
+}
@@ -0,0 +1,27 @@
+package com.lexer;
+
+// Observer of a lexing session (LexicalAnalyzer.setListener), for metrics and tracing. A session
+// without a listener does not read the clock or build any event, so an unused hook costs one null
+// check per token. Phases do not overlap: SCAN excludes the READ time spent refilling the buffer
+// and CLASSIFY excludes SYMBOL_INSERT. Implementations shared by several sessions must be thread-safe.
+public interface LexerListener {
+    enum Phase { READ, SCAN, CLASSIFY, SYMBOL_INSERT }
+
+    default void phase(Phase phase, long nanos) {
+    }
+
+    // Input bytes consumed since the previous token: the token itself plus skipped whitespace and comments
+    default void bytes(long count) {
+    }
+
+    // transitions: DFA transitions taken to find the token, including the failed one after a longest match
+    default void token(String type, int length, int transitions) {
+    }
+
+    // After an insert into a symbol table, with that table's size (the insert may have been a duplicate)
+    default void symbolInserted(String scope, int tableSize) {
+    }
+
+    default void error(LexicalError error) {
+    }
+}
@@ -0,0 +1,226 @@
+package com.lexer;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters and histograms fed by LexerListener events. Safe to share between the sessions of a
+// batch; the counters are striped (LongAdder) so concurrent sessions do not contend on them.
+public final class LexerMetrics implements LexerListener, LexerMetricsMXBean {
+    private final LongAdder tokens = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> tokensByType = new ConcurrentHashMap<>();
+    private final LongAdder bytes = new LongAdder();
+    private final EnumMap<Phase, LongAdder> phaseNanos = new EnumMap<>(Phase.class);
+    private final Histogram transitions = new Histogram();
+    private final Histogram tokenLengths = new Histogram();
+    private final LongAdder symbolInserts = new LongAdder();
+    private final LongAccumulator symbolTableSize = new LongAccumulator(Math::max, 0);
+    private final LongAdder errors = new LongAdder();
+    private ObjectName registeredName;
+
+    public LexerMetrics() {
+        for (Phase phase : Phase.values()) {
+            phaseNanos.put(phase, new LongAdder());
+        }
+    }
+
+    @Override
+    public void phase(Phase phase, long nanos) {
+        phaseNanos.get(phase).add(nanos);
+    }
+
+    @Override
+    public void bytes(long count) {
+        bytes.add(count);
+    }
+
+    @Override
+    public void token(String type, int length, int transitions) {
+        tokens.increment();
+        tokensByType.computeIfAbsent(type, key -> new LongAdder()).increment();
+        this.transitions.record(transitions);
+        tokenLengths.record(length);
+    }
+
+    @Override
+    public void symbolInserted(String scope, int tableSize) {
+        symbolInserts.increment();
+        symbolTableSize.accumulate(tableSize);
+    }
+
+    @Override
+    public void error(LexicalError error) {
+        errors.increment();
+    }
+
+    @Override
+    public long getTokenCount() {
+        return tokens.sum();
+    }
+
+    @Override
+    public Map<String, Long> getTokensByType() {
+        Map<String, Long> counts = new TreeMap<>();
+        tokensByType.forEach((type, count) -> counts.put(type, count.sum()));
+        return counts;
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        long nanos = 0;
+        for (LongAdder phase : phaseNanos.values()) {
+            nanos += phase.sum();
+        }
+        return nanos == 0 ? 0 : bytes.sum() * 1e9 / nanos;
+    }
+
+    @Override
+    public Map<String, Long> getPhaseNanos() {
+        Map<String, Long> nanos = new TreeMap<>();
+        phaseNanos.forEach((phase, total) -> nanos.put(phase.name(), total.sum()));
+        return nanos;
+    }
+
+    @Override
+    public double getTransitionsPerTokenMean() {
+        return transitions.mean();
+    }
+
+    @Override
+    public long getTransitionsPerTokenP50() {
+        return transitions.percentile(0.50);
+    }
+
+    @Override
+    public long getTransitionsPerTokenP99() {
+        return transitions.percentile(0.99);
+    }
+
+    @Override
+    public long getTransitionsPerTokenMax() {
+        return transitions.max();
+    }
+
+    @Override
+    public double getTokenLengthMean() {
+        return tokenLengths.mean();
+    }
+
+    @Override
+    public long getSymbolInserts() {
+        return symbolInserts.sum();
+    }
+
+    @Override
+    public long getSymbolTableSize() {
+        return symbolTableSize.get();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public void reset() {
+        tokens.reset();
+        tokensByType.clear();
+        bytes.reset();
+        phaseNanos.values().forEach(LongAdder::reset);
+        transitions.reset();
+        tokenLengths.reset();
+        symbolInserts.reset();
+        symbolTableSize.reset();
+        errors.reset();
+    }
+
+    // Registers these metrics with the platform MBean server as com.lexer:type=LexerMetrics,name=<name>
+    public synchronized void register(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("com.lexer:type=LexerMetrics,name=" + ObjectName.quote(name));
+        server.registerMBean(this, objectName);
+        registeredName = objectName;
+    }
+
+    public synchronized void unregister() throws JMException {
+        if (registeredName != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+            registeredName = null;
+        }
+    }
+
+    public void printSummary() {
+        System.out.println("\n--- Lexer Metrics ---");
+        System.out.println("Tokens: " + getTokenCount());
+        getTokensByType().forEach((type, count) -> System.out.println("    " + type + ": " + count));
+        System.out.printf("Bytes: %d (%.1f MB/s)%n", getBytes(), getBytesPerSecond() / 1e6);
+        getPhaseNanos().forEach((phase, nanos) -> System.out.printf("    %s: %.1f ms%n", phase, nanos / 1e6));
+        System.out.printf("DFA transitions per token: mean %.2f, p50 %d, p99 %d, max %d%n",
+                getTransitionsPerTokenMean(), getTransitionsPerTokenP50(), getTransitionsPerTokenP99(),
+                getTransitionsPerTokenMax());
+        System.out.printf("Token length: mean %.2f bytes%n", getTokenLengthMean());
+        System.out.println("Symbol inserts: " + getSymbolInserts() + " (largest table: " + getSymbolTableSize() + ")");
+        System.out.println("Errors: " + getErrorCount());
+    }
+
+    // Power-of-two buckets: bucket b counts values in [2^(b-1), 2^b), bucket 0 counts zeros.
+    // Percentiles are reported as the upper bound of their bucket.
+    private static final class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE + 1);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        void record(long value) {
+            buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(value));
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        double mean() {
+            long n = count.sum();
+            return n == 0 ? 0 : (double) sum.sum() / n;
+        }
+
+        long percentile(double fraction) {
+            long n = count.sum();
+            if (n == 0) return 0;
+            long rank = (long) Math.ceil(fraction * n);
+            long seen = 0;
+            for (int b = 0; b < buckets.length(); b++) {
+                seen += buckets.get(b);
+                if (seen >= rank) {
+                    return Math.min(b == 0 ? 0 : (1L << b) - 1, max.get());
+                }
+            }
+            return max.get();
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        void reset() {
+            for (int b = 0; b < buckets.length(); b++) {
+                buckets.set(b, 0);
+            }
+            count.reset();
+            sum.reset();
+            max.reset();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.lexer;
+
+import java.util.Map;
+
+// JMX view of LexerMetrics (registered with LexerMetrics.register)
+public interface LexerMetricsMXBean {
+    long getTokenCount();
+
+    Map<String, Long> getTokensByType();
+
+    long getBytes();
+
+    // Lexing throughput over the time spent in all phases
+    double getBytesPerSecond();
+
+    // Total nanoseconds per phase
+    Map<String, Long> getPhaseNanos();
+
+    double getTransitionsPerTokenMean();
+
+    long getTransitionsPerTokenP50();
+
+    long getTransitionsPerTokenP99();
+
+    long getTransitionsPerTokenMax();
+
+    double getTokenLengthMean();
+
+    long getSymbolInserts();
+
+    // Largest symbol table size reported by any session
+    long getSymbolTableSize();
+
+    long getErrorCount();
+
+    void reset();
+}
@@ -0,0 +1,325 @@
+package com.lexer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+// Lexes one input as a Flow.Publisher of token batches, in three stages on their own threads:
+//   read:    input channel -> chunks of bytes
+//   scan:    chunks -> classified tokens, plus the symbol insertions they cause
+//   symbols: applies the insertions to the symbol table, then hands the batch to the subscriber
+// The stages are connected by bounded SpscQueues and the last one only delivers while the subscriber
+// has demand, so a slow subscriber stalls the scanner and then the reader instead of letting tokens
+// pile up. The batches concatenated, the symbol table and the errors are the same as
+// LexicalAnalyzer.processFile on the same input. One subscriber per pipeline.
+public final class LexerPipeline implements Flow.Publisher<List<Token>> {
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int READ_AHEAD = 4;     // chunks between read and scan
+    private static final int BATCHES_AHEAD = 4;  // batches between scan and symbols
+
+    // One new daemon thread per stage; the stages block, so they must not share a small pool
+    private static final Executor STAGE_THREADS = stage -> {
+        Thread thread = new Thread(stage, "lexer-pipeline");
+        thread.setDaemon(true);
+        thread.start();
+    };
+
+    private final LexerSpec spec;
+    private final ReadableByteChannel input;
+    private final int batchSize;
+    private final ErrorHandler errorHandler;
+    private final Executor executor;
+    private final SymbolTable symbolTable = new SymbolTable();
+
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private final SpscQueue<ByteBuffer> chunks = new SpscQueue<>(READ_AHEAD);
+    private final SpscQueue<Batch> batches = new SpscQueue<>(BATCHES_AHEAD);
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean cancelled;
+    private volatile boolean scanStopped; // the scan stage will not touch errorHandler again
+    private volatile Thread deliverer; // symbols stage thread, woken by request()
+    private Flow.Subscriber<? super List<Token>> subscriber;
+
+    public LexerPipeline(LexerSpec spec, ReadableByteChannel input) {
+        this(spec, input, DEFAULT_BATCH_SIZE, new ErrorHandler(), STAGE_THREADS);
+    }
+
+    // The pipeline closes input when it is done with it; it must be a blocking channel. The executor
+    // must run the three stages at the same time.
+    public LexerPipeline(LexerSpec spec, ReadableByteChannel input, int batchSize, ErrorHandler errorHandler,
+                         Executor executor) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.spec = Objects.requireNonNull(spec);
+        this.input = TokenScanner.requireBlocking(Objects.requireNonNull(input));
+        this.batchSize = batchSize;
+        this.errorHandler = Objects.requireNonNull(errorHandler);
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    public static LexerPipeline of(LexerSpec spec, Path file) throws IOException {
+        return new LexerPipeline(spec, FileChannel.open(file, StandardOpenOption.READ));
+    }
+
+    // Written by the symbols stage; read it only after the subscriber has received onComplete or onError
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    // Written by the scan stage while it runs; read it only after the subscriber has received onComplete
+    // or onError, which wait for the scan stage to stop
+    public ErrorHandler getErrorHandler() {
+        return errorHandler;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<Token>> subscriber) {
+        Objects.requireNonNull(subscriber);
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("A LexerPipeline has only one subscriber"));
+            return;
+        }
+        this.subscriber = subscriber;
+        subscriber.onSubscribe(new Subscription());
+        boolean scanStarted = false;
+        try {
+            executor.execute(this::read);
+            executor.execute(this::scan);
+            scanStarted = true;
+            executor.execute(this::deliver);
+        } catch (RuntimeException e) {
+            // Stages that did start stop on the failure; if deliver did not start, report it here
+            fail(e);
+            if (deliverer == null) {
+                if (scanStarted) {
+                    deliverer = Thread.currentThread();
+                    awaitScan();
+                }
+                subscriber.onError(e);
+            }
+        }
+    }
+
+    private final class Subscription implements Flow.Subscription {
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("Requested " + n + " batches; demand must be positive"));
+            } else {
+                demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            wake(deliverer);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            stopStages();
+            wake(deliverer);
+        }
+    }
+
+    // Tokens of one batch and the symbol insertions their classification asked for, in order
+    private static final class Batch {
+        final List<Token> tokens;
+        String[] symbols = new String[64]; // name, type, scope, value per insertion; value null for a literal
+        int symbolCount;
+
+        Batch(int batchSize) {
+            this.tokens = new ArrayList<>(batchSize);
+        }
+
+        void addSymbol(String name, String type, String scope, String value) {
+            if (symbolCount + 4 > symbols.length) {
+                symbols = Arrays.copyOf(symbols, symbols.length * 2);
+            }
+            symbols[symbolCount++] = name;
+            symbols[symbolCount++] = type;
+            symbols[symbolCount++] = scope;
+            symbols[symbolCount++] = value;
+        }
+    }
+
+    // Read stage
+    private void read() {
+        try (input) {
+            while (!cancelled) {
+                ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+                int read = input.read(chunk);
+                if (read < 0) break;
+                if (read == 0) {
+                    throw new IOException("Channel read returned no bytes; only blocking channels are supported");
+                }
+                if (!chunks.put(chunk.flip())) return;
+            }
+            chunks.finish();
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    // Scan stage: a session whose symbol table records insertions into the current batch
+    private void scan() {
+        BatchRecorder recorder = new BatchRecorder();
+        recorder.batch = new Batch(batchSize);
+        LexicalAnalyzer session = new LexicalAnalyzer(spec, recorder, errorHandler);
+        try (TokenScanner scanner = session.scan(new ChunkChannel())) {
+            Token token;
+            while ((token = scanner.nextToken()) != null) {
+                recorder.batch.tokens.add(token);
+                if (recorder.batch.tokens.size() == batchSize) {
+                    if (!batches.put(recorder.batch)) return;
+                    recorder.batch = new Batch(batchSize);
+                }
+            }
+            if (!cancelled && !recorder.batch.tokens.isEmpty() && !batches.put(recorder.batch)) return;
+            batches.finish();
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        } finally {
+            scanStopped = true;
+            wake(deliverer);
+        }
+    }
+
+    // Symbols stage: applies each batch's insertions, then waits for demand to deliver it
+    private void deliver() {
+        deliverer = Thread.currentThread();
+        Batch batch;
+        while ((batch = batches.take()) != null) {
+            for (int i = 0; i < batch.symbolCount; i += 4) {
+                String[] symbol = batch.symbols;
+                if (symbol[i + 3] == null) {
+                    symbolTable.insertLiteral(symbol[i], symbol[i + 1], symbol[i + 2]);
+                } else {
+                    symbolTable.insert(symbol[i], symbol[i + 1], symbol[i + 2], symbol[i + 3]);
+                }
+            }
+            while (demand.get() == 0 && !cancelled && failure.get() == null) {
+                LockSupport.park(this);
+            }
+            if (cancelled || failure.get() != null) break;
+            demand.decrementAndGet();
+            try {
+                subscriber.onNext(batch.tokens);
+            } catch (Throwable e) {
+                // A subscriber that throws is treated as having cancelled
+                cancelled = true;
+                stopStages();
+                return;
+            }
+        }
+        if (cancelled) return;
+        awaitScan();
+        Throwable error = failure.get();
+        if (error != null) {
+            subscriber.onError(error);
+        } else {
+            subscriber.onComplete();
+        }
+    }
+
+    // Records the first failure and stops every stage; deliver reports it
+    private void fail(Throwable error) {
+        failure.compareAndSet(null, error);
+        stopStages();
+        wake(deliverer);
+    }
+
+    // On a failure the scan stage may still be finishing a token; stopStages has released it from the queues
+    private void awaitScan() {
+        while (!scanStopped) {
+            LockSupport.park(this);
+        }
+    }
+
+    private void stopStages() {
+        chunks.cancel();
+        batches.cancel();
+    }
+
+    private static void wake(Thread thread) {
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    // The scan stage's view of the chunk queue
+    private final class ChunkChannel implements ReadableByteChannel {
+        private ByteBuffer chunk;
+
+        @Override
+        public int read(ByteBuffer target) throws IOException {
+            if (chunk == null || !chunk.hasRemaining()) {
+                chunk = chunks.take();
+                if (chunk == null) {
+                    // A cancelled queue is not the end of the input: the scanner must not finish the input
+                    // and report an unclosed comment or string because the read stage failed
+                    if (cancelled || failure.get() != null) {
+                        throw new IOException("Input stopped before its end");
+                    }
+                    return -1;
+                }
+            }
+            int count = Math.min(chunk.remaining(), target.remaining());
+            target.put(target.position(), chunk, chunk.position(), count);
+            target.position(target.position() + count);
+            chunk.position(chunk.position() + count);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // Passes insertions on to the symbols stage; first-wins is decided there, as in SymbolTable
+    private static final class BatchRecorder extends SymbolTable {
+        Batch batch;
+
+        @Override
+        public void insert(String name, String type, String scope, String value) {
+            batch.addSymbol(name, type, scope, Objects.requireNonNull(value));
+        }
+
+        @Override
+        public void insertLiteral(String value, String type, String scope) {
+            batch.addSymbol(value, type, scope, null);
+        }
+
+        @Override
+        public boolean exists(String name, String scope) {
+            return false; // insertions are first-wins anyway
+        }
+    }
+}
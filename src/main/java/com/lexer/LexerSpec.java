@@ -0,0 +1,411 @@
+package com.lexer;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// Compiled token rules and keywords of a LexerGrammar. Immutable once built, so one spec can be
+// shared by any number of LexicalAnalyzer sessions on any number of threads. Automata come from the
+// process-wide DFACache: the combined scanner is built on first use and single-rule DFAs only when asked for.
+public final class LexerSpec {
+    // Precompiled table file header
+    private static final int TABLES_MAGIC = 0x58434C54; // "XCLT"
+    private static final int TABLES_VERSION = 2;
+    private static final System.Logger LOG = System.getLogger(LexerSpec.class.getName());
+
+    private final LexerGrammar grammar;
+    private final List<String> ruleNames;
+    private final List<String> ruleRegexes;
+    private final Map<String, Integer> ruleIndex;
+    private final List<String> keywords;          // keyword index -> keyword
+    private final Map<String, Integer> keywordIndex;
+    private final int literalMask;      // rules whose tokens go into the symbol table as literals
+    private final int skipMask;         // rules whose matches are dropped
+    private final boolean[] delimiters; // ASCII characters that end a word
+    private volatile DFA scanner; // null until first use (unless loaded from tables)
+    private final LazyDFA.Program lazyProgram; // non-null if scanners build their DFA on the fly
+    private final long lazyCacheBytes;
+
+    private LexerSpec(LexerGrammar grammar, DFA scanner) {
+        this(grammar, scanner, null, 0);
+    }
+
+    private LexerSpec(LexerGrammar grammar, DFA scanner, LazyDFA.Program lazyProgram, long lazyCacheBytes) {
+        this.grammar = grammar;
+        List<String> names = new ArrayList<>();
+        Map<String, Integer> index = new HashMap<>();
+        int literals = 0;
+        int skips = 0;
+        for (LexerGrammar.Rule rule : grammar.getRules()) {
+            int i = names.size();
+            index.put(rule.name(), i);
+            names.add(rule.name());
+            if (rule.kind() == LexerGrammar.Kind.LITERAL) literals |= 1 << i;
+            if (rule.kind() == LexerGrammar.Kind.SKIP) skips |= 1 << i;
+        }
+        this.ruleNames = List.copyOf(names);
+        this.ruleRegexes = grammar.regexes();
+        this.ruleIndex = Collections.unmodifiableMap(index);
+        this.keywords = List.copyOf(grammar.getKeywords());
+        Map<String, Integer> keywordIndex = new HashMap<>();
+        for (int i = 0; i < keywords.size(); i++) {
+            keywordIndex.put(keywords.get(i), i);
+        }
+        this.keywordIndex = Collections.unmodifiableMap(keywordIndex);
+        this.literalMask = literals;
+        this.skipMask = skips;
+        this.delimiters = grammar.delimiterTable();
+        this.scanner = scanner;
+        this.lazyProgram = lazyProgram;
+        this.lazyCacheBytes = lazyCacheBytes;
+    }
+
+    // Lazily compiled process-wide default spec
+    private static final class DefaultHolder {
+        static final LexerSpec INSTANCE = compile();
+    }
+
+    public static LexerSpec defaultSpec() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    // Spec with the default .xcl grammar; the scanner is compiled (or taken from the cache) on first use
+    public static LexerSpec compile() {
+        return compile(LexerGrammar.defaultGrammar());
+    }
+
+    // Spec for a grammar, without checking its rules. The scanner is shared through DFACache.shared()
+    // with every other spec that has the same rule regexes.
+    public static LexerSpec compile(LexerGrammar grammar) {
+        return new LexerSpec(grammar, null);
+    }
+
+    // Spec whose scanners build DFA states only when the input reaches them, each scanner caching
+    // at most cacheBytes of states (see LazyDFA). For rule sets whose full DFA is too large to build
+    // up front. match, validate, checkRules and save still compile the full DFA when called.
+    public static LexerSpec compileLazy(LexerGrammar grammar, long cacheBytes) {
+        LazyDFA.Program program = new RegexToDFAConverter().lazyProgram(grammar.regexes(),
+                List.copyOf(grammar.getKeywords()));
+        if (cacheBytes < program.minimumCacheBytes()) {
+            throw new IllegalArgumentException("Lazy DFA cache of " + cacheBytes + " bytes is below the minimum of "
+                    + program.minimumCacheBytes() + " for these rules");
+        }
+        return new LexerSpec(grammar, null, program, cacheBytes);
+    }
+
+    // Parses a grammar file, compiles it right away and rejects it if checkRules finds errors
+    public static LexerSpec loadGrammar(Path grammarFile) throws IOException {
+        LexerSpec spec = compile(LexerGrammar.load(grammarFile));
+        spec.checkRules();
+        return spec;
+    }
+
+    // Build-time step: write the compiled rules as a binary table file
+    public void save(Path tablesFile) throws IOException {
+        Path parent = tablesFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tablesFile)))) {
+            out.writeInt(TABLES_MAGIC);
+            out.writeInt(TABLES_VERSION);
+            out.writeInt(ruleRegexes.size());
+            for (String regex : ruleRegexes) {
+                out.writeUTF(regex);
+            }
+            out.writeInt(keywords.size());
+            for (String keyword : keywords) {
+                out.writeUTF(keyword);
+            }
+            getScanner().writeTo(out);
+        }
+    }
+
+    // Memory-maps a table file written by save for the default rules
+    public static LexerSpec load(Path tablesFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(tablesFile, StandardOpenOption.READ)) {
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != TABLES_MAGIC || in.getInt() != TABLES_VERSION) {
+                throw new IOException("Not a lexer table file (or wrong version): " + tablesFile);
+            }
+            LexerGrammar grammar = LexerGrammar.defaultGrammar();
+            List<String> regexes = grammar.regexes();
+            int ruleCount = in.getInt();
+            if (ruleCount != regexes.size()) {
+                throw new IOException("Lexer tables were compiled for different rules: " + tablesFile);
+            }
+            DataInputStream header = new DataInputStream(new ByteBufferInputStream(in));
+            for (String regex : regexes) {
+                if (!regex.equals(header.readUTF())) {
+                    throw new IOException("Lexer tables were compiled for different rules: " + tablesFile);
+                }
+            }
+            List<String> keywords = List.copyOf(grammar.getKeywords());
+            if (in.getInt() != keywords.size()) {
+                throw new IOException("Lexer tables were compiled for different keywords: " + tablesFile);
+            }
+            for (String keyword : keywords) {
+                if (!keyword.equals(header.readUTF())) {
+                    throw new IOException("Lexer tables were compiled for different keywords: " + tablesFile);
+                }
+            }
+            DFA dfa = DFA.readFrom(in);
+            // The scanner indexes the keyword list and the rules with these, so check them up front
+            int unknownRules = ruleCount == Integer.SIZE ? 0 : -1 << ruleCount;
+            for (int state = 0; state < dfa.getStateCount(); state++) {
+                if (dfa.getKeyword(state) >= keywords.size() || (dfa.getAcceptMask(state) & unknownRules) != 0) {
+                    throw new IOException("Corrupt lexer table file: " + tablesFile
+                            + " (state " + state + " names an unknown keyword or rule)");
+                }
+            }
+            return new LexerSpec(grammar, dfa);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Corrupt lexer table file: " + tablesFile, e);
+        }
+    }
+
+    // Loads the table file; on first run (or if the file is stale) compiles and writes it. Why a
+    // stale or corrupt file was replaced goes to the System.Logger, not to the program's output.
+    public static LexerSpec loadOrCompile(Path tablesFile) throws IOException {
+        if (Files.exists(tablesFile)) {
+            try {
+                return load(tablesFile);
+            } catch (IOException e) {
+                LOG.log(System.Logger.Level.WARNING, "Recompiling lexer tables: {0}", e.getMessage());
+            }
+        }
+        LexerSpec spec = compile();
+        spec.save(tablesFile);
+        return spec;
+    }
+
+    // Lets DataInputStream.readUTF consume the header strings straight from the mapped buffer
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+    }
+
+    DFA getScanner() {
+        DFA dfa = scanner;
+        if (dfa == null) {
+            // Racing threads get the same cached DFA, or at worst equal ones
+            dfa = DFACache.shared().scanner(ruleRegexes, keywords);
+            scanner = dfa;
+        }
+        return dfa;
+    }
+
+    // Automaton for one scanner: the shared DFA, or a fresh LazyDFA for a lazy spec
+    Automaton newAutomaton() {
+        return lazyProgram == null ? getScanner() : new LazyDFA(lazyProgram, lazyCacheBytes);
+    }
+
+    public boolean isLazy() {
+        return lazyProgram != null;
+    }
+
+    // DFA of one rule on its own (debugging, per-type validation), compiled on first use
+    DFA getRuleDFA(int rule) {
+        return DFACache.shared().rule(ruleRegexes.get(rule));
+    }
+
+    public LexerGrammar getGrammar() {
+        return grammar;
+    }
+
+    public int getRuleCount() {
+        return ruleNames.size();
+    }
+
+    public String getRuleName(int rule) {
+        return ruleNames.get(rule);
+    }
+
+    public String getRuleRegex(int rule) {
+        return ruleRegexes.get(rule);
+    }
+
+    // Rule index for a token type, or -1
+    public int getRuleIndex(String tokenType) {
+        return ruleIndex.getOrDefault(tokenType, -1);
+    }
+
+    public boolean isLiteral(int rule) {
+        return (literalMask & (1 << rule)) != 0;
+    }
+
+    int getSkipMask() {
+        return skipMask;
+    }
+
+    boolean[] getDelimiters() {
+        return delimiters;
+    }
+
+    public boolean isKeyword(String word) {
+        return keywordIndex.containsKey(word);
+    }
+
+    // Keyword index as reported by the scanner, or -1
+    public int getKeywordIndex(String word) {
+        return keywordIndex.getOrDefault(word, -1);
+    }
+
+    public String getKeyword(int keyword) {
+        return keywords.get(keyword);
+    }
+
+    public int getKeywordCount() {
+        return keywords.size();
+    }
+
+    // Highest-priority rule matching the whole value, or -1
+    public int match(String value) {
+        int state = endState(value);
+        return state == -1 ? -1 : getScanner().getAcceptedRule(state);
+    }
+
+    public boolean validate(String tokenType, String value) {
+        int rule = getRuleIndex(tokenType);
+        if (rule == -1) return false;
+        int state = endState(value);
+        return state != -1 && getScanner().accepts(state, rule);
+    }
+
+    // Scanner state after the UTF-8 bytes of value, or -1. ASCII characters are their own byte;
+    // from the first other character on, the rest of the value is encoded.
+    private int endState(String value) {
+        DFA scanner = getScanner();
+        int state = scanner.startState;
+        for (int i = 0; i < value.length() && state != -1; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                for (byte b : value.substring(i).getBytes(StandardCharsets.UTF_8)) {
+                    if (state == -1) break;
+                    state = scanner.nextState(state, b & 0xFF);
+                }
+                return state;
+            }
+            state = scanner.nextState(state, c);
+        }
+        return state;
+    }
+
+    // Names the first rule whose regex does not compile
+    private String regexError() {
+        for (int rule = 0; rule < ruleNames.size(); rule++) {
+            try {
+                getRuleDFA(rule);
+            } catch (IllegalArgumentException e) {
+                return "rule " + ruleNames.get(rule) + ": " + e.getMessage();
+            }
+        }
+        return "the rules do not compile";
+    }
+
+    // Checks the compiled rules. Throws IllegalArgumentException listing every error: a rule that
+    // never produces a token because earlier rules win all of its matches, a rule that matches the
+    // empty string or a newline, and a keyword that the IDENTIFIER rule does not match. Returns one
+    // warning per pair of rules that can match the same text, naming the rule that wins.
+    public List<String> checkRules() {
+        DFA dfa;
+        try {
+            dfa = getScanner();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid grammar: " + regexError(), e);
+        }
+        int stateCount = dfa.getStateCount();
+        int classCount = dfa.getClassCount();
+        // One character standing for each input class, for the example texts
+        int[] classOf = dfa.getClassMap();
+        char[] sample = new char[classCount];
+        boolean[] sampled = new boolean[classCount];
+        for (int c = 0; c < classOf.length; c++) {
+            int cls = classOf[c];
+            if (cls >= 0 && (!sampled[cls] || (c > ' ' && sample[cls] <= ' '))) {
+                sample[cls] = (char) c;
+                sampled[cls] = true;
+            }
+        }
+        // Breadth-first, so the first text reaching a state is a shortest one
+        String[] text = new String[stateCount];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        text[dfa.startState] = "";
+        queue.add(dfa.startState);
+        List<String> errors = new ArrayList<>();
+        int rules = ruleNames.size();
+        int won = 0;
+        String[][] overlap = new String[rules][rules]; // [winner][loser] -> shortest text both match
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int mask = dfa.getAcceptMask(state);
+            if (mask != 0) {
+                int winner = Integer.numberOfTrailingZeros(mask);
+                won |= 1 << winner;
+                for (int others = mask & (mask - 1); others != 0; others &= others - 1) {
+                    int loser = Integer.numberOfTrailingZeros(others);
+                    if (overlap[winner][loser] == null) overlap[winner][loser] = text[state];
+                }
+            }
+            for (int cls = 0; cls < classCount; cls++) {
+                int next = dfa.getNextStateByClass(state, cls);
+                if (next != -1 && text[next] == null) {
+                    text[next] = text[state] + sample[cls];
+                    queue.add(next);
+                }
+            }
+        }
+        int startMask = dfa.getAcceptMask(dfa.startState);
+        for (int rule = 0; rule < rules; rule++) {
+            if ((startMask & (1 << rule)) != 0) {
+                errors.add("Rule " + ruleNames.get(rule) + " matches the empty string");
+            } else if ((won & (1 << rule)) == 0) {
+                String shadowedBy = "";
+                for (int winner = 0; winner < rule && shadowedBy.isEmpty(); winner++) {
+                    if (overlap[winner][rule] != null) {
+                        shadowedBy = " (e.g. " + ruleNames.get(winner) + " wins on \"" + overlap[winner][rule] + "\")";
+                    }
+                }
+                errors.add("Rule " + ruleNames.get(rule) + " never produces a token: every match is taken by an earlier rule" + shadowedBy);
+            }
+        }
+        if ('\n' < classOf.length && classOf['\n'] >= 0) {
+            errors.add("Rules must not match a newline");
+        }
+        int identifier = getRuleIndex("IDENTIFIER");
+        for (String keyword : keywords) {
+            int rule = match(keyword);
+            if (identifier == -1 || rule != identifier) {
+                errors.add("Keyword '" + keyword + "' is " + (rule == -1 ? "not matched by any rule"
+                        : "matched by " + ruleNames.get(rule)) + ", not IDENTIFIER");
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException("Invalid grammar:\n  " + String.join("\n  ", errors));
+        }
+        List<String> warnings = new ArrayList<>();
+        for (int winner = 0; winner < rules; winner++) {
+            for (int loser = 0; loser < rules; loser++) {
+                if (overlap[winner][loser] != null) {
+                    warnings.add(ruleNames.get(winner) + " and " + ruleNames.get(loser) + " both match \""
+                            + overlap[winner][loser] + "\"; " + ruleNames.get(winner) + " wins");
+                }
+            }
+        }
+        return warnings;
+    }
+}
@@ -1,244 +1,374 @@
 package com.lexer;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
+// One lexing session: per-run tokens, symbols, errors and scope tracking over a shared LexerSpec
 public class LexicalAnalyzer {
-    private final Map<String, DFA> dfas;
-    private final Set<String> keywords;
-    private final Set<String> symbols;
+    // Keyword indexes come from the scanner; NO_KEYWORD marks "none" (or an unknown token)
+    private static final int NO_KEYWORD = -1;
+    // Type keywords and the symbol type of what they declare; all but str can be a return type
+    private static final Map<String, String> DECLARED_TYPES = Map.of(
+            "deci", "DECIMAL", "int", "INTEGER", "char", "CHARACTER", "bool", "BOOLEAN", "str", "STRING");
+    private static final Set<String> RETURN_TYPES = Set.of("deci", "int", "char", "bool");
+
+    private final LexerSpec spec;
+    // Per keyword index of the spec, so scope tracking compares ints
+    private final String[] declaredType; // null if not a type keyword
+    private final boolean[] returnType;
+    private final int defKeyword;
+    // Rules with their own handling in classify; -1 if the grammar has no such rule
+    private final int identifierRule;
+    private final int globalIdentifierRule;
+    private final int symbolRule;
     public final List<Token> tokens;
     private final SymbolTable symbolTable;
     private final ErrorHandler errorHandler;
+    // Shared global scope for multi-file analysis, or null to keep globals in symbolTable
+    private final GlobalSymbolTable globals;
+    // Metrics hook, or null; scanners created by scan(...) pick it up when they are created
+    private LexerListener listener;
+    // Token text of every scanner of this session; setStringPool shares one between sessions
+    private StringPool stringPool = new StringPool();
+    private TokenScanner held; // reused by hold(), created on first use
+    long symbolNanos; // total SYMBOL_INSERT time, so scanners can keep it out of CLASSIFY
 
     private boolean insideFunction = false;
     private String currentFunction = "";
-    private String lastKeyword = "";
-    private String secondLastKeyword = "";
-    private String lastToken = "";
+    private int lastKeyword = NO_KEYWORD;
+    private int secondLastKeyword = NO_KEYWORD;
+    private int lastToken = NO_KEYWORD; // last keyword, or NO_KEYWORD after an unknown token
 
     public LexicalAnalyzer() {
-        dfas = new HashMap<>();
-        RegexToDFAConverter converter = new RegexToDFAConverter();
-
-        dfas.put("IDENTIFIER", converter.convertRegexToDFA("[a-z][a-z]*"));
-        dfas.put("INTEGER", converter.convertRegexToDFA("[0-9]+"));
-        dfas.put("DECIMAL", converter.convertRegexToDFA("[0-9]+\\.[0-9]+"));
-        dfas.put("CHAR", converter.convertRegexToDFA("'[a-zA-Z0-9]'"));
-        dfas.put("STRING", converter.convertRegexToDFA("\"[^\"]*\""));
-        dfas.put("BOOLEAN", converter.convertRegexToDFA("(true|false)"));
-        dfas.put("OPERATOR", converter.convertRegexToDFA("[+\\*/%^=-]"));
-        errorHandler = new ErrorHandler();
-        keywords = new HashSet<>(Arrays.asList(
-                "if", "elif", "else", "out", "in", "deci", "int", "char", "bool", "str", "return", "def", "str"
-        ));
-
-        symbols = new HashSet<>(Arrays.asList("{", "}", "(", ")", ";", ","));
+        this(LexerSpec.defaultSpec());
+    }
 
-        tokens = new ArrayList<>();
-        symbolTable = new SymbolTable();
+    // Loads precompiled tables; on first run (or if the file is stale) compiles and writes them
+    public LexicalAnalyzer(Path tablesFile) throws IOException {
+        this(LexerSpec.loadOrCompile(tablesFile));
+    }
+
+    public LexicalAnalyzer(LexerSpec spec) {
+        this(spec, new SymbolTable(), new ErrorHandler(), null);
+    }
+
+    // Session reporting errors to the given handler (error limit, panic recovery, streaming sink)
+    public LexicalAnalyzer(LexerSpec spec, ErrorHandler errorHandler) {
+        this(spec, new SymbolTable(), errorHandler, null);
+    }
 
-        lastKeyword = "";
-        secondLastKeyword = "";
-        lastToken = "";
+    // Session of one file in a multi-file program: @global identifiers and functions go to the
+    // shared table (safe to share between threads), everything else stays in this session
+    public LexicalAnalyzer(LexerSpec spec, GlobalSymbolTable globals) {
+        this(spec, new SymbolTable(), new ErrorHandler(), Objects.requireNonNull(globals));
+    }
+
+    // Session writing symbols and errors to the given tables (IncrementalLexer records them per token)
+    LexicalAnalyzer(LexerSpec spec, SymbolTable symbolTable, ErrorHandler errorHandler) {
+        this(spec, symbolTable, errorHandler, null);
+    }
+
+    private LexicalAnalyzer(LexerSpec spec, SymbolTable symbolTable, ErrorHandler errorHandler,
+                            GlobalSymbolTable globals) {
+        this.spec = spec;
+        this.globals = globals;
+        this.declaredType = new String[spec.getKeywordCount()];
+        this.returnType = new boolean[spec.getKeywordCount()];
+        for (int keyword = 0; keyword < declaredType.length; keyword++) {
+            declaredType[keyword] = DECLARED_TYPES.get(spec.getKeyword(keyword));
+            returnType[keyword] = RETURN_TYPES.contains(spec.getKeyword(keyword));
+        }
+        this.defKeyword = spec.getKeywordIndex("def");
+        this.identifierRule = spec.getRuleIndex("IDENTIFIER");
+        this.globalIdentifierRule = spec.getRuleIndex("GLOBAL_IDENTIFIER");
+        this.symbolRule = spec.getRuleIndex("SYMBOL");
+
+        this.errorHandler = errorHandler;
+        tokens = new ArrayList<>();
+        this.symbolTable = symbolTable;
     }
 
     public void debugDFA(String tokenType) {
-        DFA dfa = dfas.get(tokenType);
-        if (dfa != null) {
-            dfa.displayTable();
+        int rule = spec.getRuleIndex(tokenType);
+        if (rule != -1) {
+            System.out.println("DFA for " + tokenType + " (" + spec.getRuleRegex(rule) + "):");
+            spec.getRuleDFA(rule).displayTable();
         } else {
             System.out.println("DFA for token type '" + tokenType + "' not found.");
         }
     }
 
+    // Classify a complete token with a single pass over the combined DFA. The token is encoded
+    // once, into the session's lexeme holder, and matched and classified from there.
     public void analyzeToken(String token, int lineNumber) {
+        TokenScanner lexeme = hold(token);
+        int rule = lexeme.matchHeld();
+        int length = lexeme.currentLength();
+        if (rule == -1) {
+            unknown(lexeme, length, lineNumber);
+            tokens.add(new Token("UNKNOWN", token, lineNumber));
+        } else {
+            String type = classify(rule, lexeme.currentKeyword(), lexeme, length);
+            tokens.add(new Token(type, token, lineNumber));
+        }
+    }
 
-        if (token.startsWith("@")) {
-            String globalId = token.substring(1); // remove the '@'
-            if (dfas.get("IDENTIFIER").validate(globalId)) {
-                tokens.add(new Token("GLOBAL_IDENTIFIER", token, lineNumber));
-                // Global variables are always in the "global" scope.
-                if (!symbolTable.exists(globalId, "global")) {
-                    String type = getSymbolType();
-                    symbolTable.insert(globalId, type, "global", "");
-                }
-            } else {
-                errorHandler.addError("Invalid global identifier: " + token, lineNumber);
-                tokens.add(new Token("UNKNOWN", token, lineNumber));
+    // Token type for a lexeme matched by the scanner (keyword is the scanner's keyword index or -1),
+    // updating scope and symbol table. Operators, symbols and keywords never decode their text;
+    // identifiers and literals need it for the symbol table.
+    String classify(int rule, int keyword, TokenScanner lexeme, int length) {
+        // Compares rule indexes rather than switching on the rule name
+        if (rule == identifierRule) {
+            return analyzeIdentifier(keyword, lexeme, length);
+        }
+        String tokenType = spec.getRuleName(rule);
+        if (rule == globalIdentifierRule) {
+            String globalId = lexeme.textAfterFirst(length); // remove the '@'
+            // Global variables are always in the "global" scope.
+            if (!exists(globalId, "global")) {
+                String type = getSymbolType();
+                insertGlobal(globalId, type, "");
             }
-            return;
+            return tokenType;
         }
-
-        if (symbols.contains(token)) {
-            tokens.add(new Token("SYMBOL", token, lineNumber));
-            if (token.equals("{")) {
+        if (rule == symbolRule) {
+            int symbol = lexeme.firstByte();
+            if (symbol == '{') {
                 insideFunction = true;  // Now inside function scope
-            } else if (token.equals("}")) {
+            } else if (symbol == '}') {
                 insideFunction = false;
                 currentFunction = "";  // Exit function scope
             }
-            return;
+            return tokenType;
         }
+        // Operators and any other plain rules of a custom grammar
+        if (!spec.isLiteral(rule)) return tokenType;
+        // Literals: BOOLEAN, INTEGER, DECIMAL, CHAR, STRING
+        String token = lexeme.text(length);
+        String scope = insideFunction ? currentFunction : "global";
+        long start = listener == null ? 0 : System.nanoTime();
+        symbolTable.insertLiteral(token, tokenType, scope);
+        if (listener != null) symbolInserted(start, scope, symbolTable.size());
+        return tokenType;
+    }
 
-        if (dfas.get("BOOLEAN").validate(token)) {
-            tokens.add(new Token("BOOLEAN", token, lineNumber));
-            symbolTable.insert(token, "BOOLEAN", insideFunction ? currentFunction : "global", token);
-            return;
+    // Token type for an identifier-shaped lexeme: KEYWORD, FUNCTION or IDENTIFIER
+    private String analyzeIdentifier(int keyword, TokenScanner lexeme, int length) {
+        if (keyword != NO_KEYWORD) {
+            secondLastKeyword = lastKeyword; // Update second last keyword
+            lastKeyword = keyword; // Update last keyword
+            lastToken = keyword;
+            return "KEYWORD";
         }
 
-        if (dfas.get("IDENTIFIER").validate(token)) {
-            if (keywords.contains(token)) {
-                tokens.add(new Token("KEYWORD", token, lineNumber));
-                secondLastKeyword = lastKeyword; // Update second last keyword
-                lastKeyword = token; // Update last keyword
-                lastToken = token;
-                return;
-            }
+        String token = lexeme.text(length);
+        if (secondLastKeyword != NO_KEYWORD && secondLastKeyword == defKeyword
+                && lastKeyword != NO_KEYWORD && returnType[lastKeyword]) {
+            // function definition
+            currentFunction = token;
+            insertGlobal(token, "FUNCTION", spec.getKeyword(lastKeyword));
+            lastKeyword = NO_KEYWORD; // reset after function definition
+            secondLastKeyword = NO_KEYWORD; // reset second last keyword
+            insideFunction = true;
+            return "FUNCTION";
+        }
 
+        // Regular Identifier
 
-            if (secondLastKeyword.equals("def") && (lastKeyword.equals("deci") || lastKeyword.equals("int") ||
-                    lastKeyword.equals("char") || lastKeyword.equals("bool"))) {
-                // function definition
-                currentFunction = token;
-                symbolTable.insert(token, "FUNCTION", "global", lastKeyword);
-                tokens.add(new Token("FUNCTION", token, lineNumber));
-                lastKeyword = ""; // reset after function definition
-                secondLastKeyword = ""; // reset second last keyword
-                insideFunction = true;
-                return;
-            }
+        String scope = insideFunction ? currentFunction : "global";
+        if (!exists(token, scope)) {
+            String type = getSymbolType();
+            long start = listener == null ? 0 : System.nanoTime();
+            symbolTable.insert(token, type, scope, "");
+            if (listener != null) symbolInserted(start, scope, symbolTable.size());
+        }
 
-            // Regular Identifier
+        return "IDENTIFIER";
+    }
 
-            String scope = insideFunction ? currentFunction : "global";
-            if (!symbolTable.exists(token, scope)) {
-                String type = getSymbolType();
-                symbolTable.insert(token, type, scope, "");
-            }
+    private boolean exists(String name, String scope) {
+        return symbolTable.exists(name, scope)
+                || (globals != null && scope.equals("global") && globals.exists(name));
+    }
 
-            tokens.add(new Token("IDENTIFIER", token, lineNumber));
-            return;
+    private void insertGlobal(String name, String type, String value) {
+        long start = listener == null ? 0 : System.nanoTime();
+        if (globals != null) {
+            globals.insert(name, type, value);
+            if (listener != null) symbolInserted(start, "global", globals.size());
+        } else {
+            symbolTable.insert(name, type, "global", value);
+            if (listener != null) symbolInserted(start, "global", symbolTable.size());
         }
+    }
 
-        if (dfas.get("INTEGER").validate(token)) {
-            tokens.add(new Token("INTEGER", token, lineNumber));
-            symbolTable.insert(token, "INTEGER", insideFunction ? currentFunction : "global", token);
-            return;
-        }
+    private void symbolInserted(long start, String scope, int tableSize) {
+        long elapsed = System.nanoTime() - start;
+        symbolNanos += elapsed;
+        listener.phase(LexerListener.Phase.SYMBOL_INSERT, elapsed);
+        listener.symbolInserted(scope, tableSize);
+    }
 
-        if (dfas.get("DECIMAL").validate(token)) {
-            tokens.add(new Token("DECIMAL", token, lineNumber));
-            symbolTable.insert(token, "DECIMAL", insideFunction ? currentFunction : "global", token);
-            return;
-        }
+    // Reports the unknown lexeme of the given length at the scanner's position
+    void unknown(TokenScanner lexeme, int length, int lineNumber) {
+        lastToken = NO_KEYWORD;
+        if (suppressError()) return;
+        LexicalError.Code code = lexeme.firstByte() == '@'
+                ? LexicalError.Code.INVALID_GLOBAL_IDENTIFIER : LexicalError.Code.UNRECOGNIZED_TOKEN;
+        lexicalError(lexeme.error(code, lineNumber, length));
+    }
 
-        if (dfas.get("CHAR").validate(token)) {
-            tokens.add(new Token("CHAR", token, lineNumber));
-            symbolTable.insert(token, "CHAR", insideFunction ? currentFunction : "global", token);
-            return;
-        }
+    // Past the error limit an error is only counted: true if it was, and nothing needs building.
+    // A listener still gets every error.
+    boolean suppressError() {
+        if (listener != null || !errorHandler.isLimitReached()) return false;
+        errorHandler.suppress();
+        return true;
+    }
 
-        if (dfas.get("STRING").validate(token)) {
-            tokens.add(new Token("STRING", token, lineNumber));
-            symbolTable.insert(token, "STRING", insideFunction ? currentFunction : "global", token);
-            return;
-        }
+    // Scope tracking state between two tokens; classification only depends on this and the token
+    record ScopeState(boolean insideFunction, String currentFunction, int lastKeyword,
+                      int secondLastKeyword, int lastToken) {
+    }
 
-        if (dfas.get("OPERATOR").validate(token)) {
-            tokens.add(new Token("OPERATOR", token, lineNumber));
-            return;
-        }
+    ScopeState saveScope() {
+        return new ScopeState(insideFunction, currentFunction, lastKeyword, secondLastKeyword, lastToken);
+    }
 
+    void restoreScope(ScopeState state) {
+        insideFunction = state.insideFunction();
+        currentFunction = state.currentFunction();
+        lastKeyword = state.lastKeyword();
+        secondLastKeyword = state.secondLastKeyword();
+        lastToken = state.lastToken();
+    }
 
-        errorHandler.addError("Unrecognized token: " + token, lineNumber);
-        tokens.add(new Token("UNKNOWN", token, lineNumber));
-        lastToken = token;
+    void lexicalError(LexicalError error) {
+        errorHandler.report(error);
+        if (listener != null) listener.error(error);
     }
 
     private String getSymbolType() {
-        String type = "UNKNOWN";
-
-        if (lastToken.equals("deci") || lastToken.equals("int") ||
-                lastToken.equals("char") || lastToken.equals("bool") || lastToken.equals("str")) {
-
-            type = switch (lastToken) {
-                case "deci" -> "DECIMAL";
-                case "int" -> "INTEGER";
-                case "char" -> "CHARACTER";
-                case "bool" -> "BOOLEAN";
-                default -> "STRING";
-            };
-        }
-        return type;
+        String type = lastToken == NO_KEYWORD ? null : declaredType[lastToken];
+        return type == null ? "UNKNOWN" : type;
     }
 
 
-    public void processInput(String input) {
-        Scanner scanner = new Scanner(input);
-        boolean inMultiLineComment = false;
-        int lineNumber = 0;
+    // The session's lexeme holder with text as the current lexeme, for classify and unknown
+    TokenScanner hold(String text) {
+        if (held == null) {
+            held = new TokenScanner(this);
+        }
+        held.hold(text);
+        return held;
+    }
 
-        while (scanner.hasNextLine()) {
-            String line = scanner.nextLine().trim();
-            lineNumber++;
+    // Pull-based scanning: tokens are produced on demand and not added to the tokens list
+    public TokenScanner scan(ReadableByteChannel input) {
+        return new TokenScanner(this, input, TokenScanner.DEFAULT_BUFFER_SIZE);
+    }
 
-            if (inMultiLineComment) {
-                if (line.contains("*/")) {
-                    inMultiLineComment = false;
-                }
-                continue;
-            }
+    public TokenScanner scan(Reader input) {
+        return scan(new TokenScanner.EncodingChannel(input));
+    }
 
-            if (line.startsWith("/*")) {
-                if (!line.endsWith("*/")) {
-                    inMultiLineComment = true;
-                }
-                continue;
-            }
+    public TokenScanner scan(String input) {
+        return new TokenScanner(this, ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8)));
+    }
 
-            if (line.contains("//")) {
-                line = line.substring(0, line.indexOf("//")).trim();
-            }
+    // Memory-maps the file and scans the mapped bytes directly; token text is decoded on demand.
+    // Files over 2 GB cannot be mapped in one piece and are streamed instead.
+    public TokenScanner scan(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        if (channel.size() > Integer.MAX_VALUE) {
+            return scan(channel);
+        }
+        try (channel) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new TokenScanner(this, mapped);
+        }
+    }
 
-            if (!line.isEmpty()) {
-                StringTokenizer tokenizer = new StringTokenizer(line, " {}(),;=+-*/%^<>\"", true);
-                List<String> tokensInLine = new ArrayList<>();
+    // Columnar alternative to processFile: no Token object per token
+    public TokenBuffer processFileColumnar(Path file) throws IOException {
+        return scan(file).drainToBuffer();
+    }
 
-                while (tokenizer.hasMoreTokens()) {
-                    String token = tokenizer.nextToken().trim();
-                    if (!token.isEmpty()) {
-                        tokensInLine.add(token);
-                    }
-                }
+    public void processFile(Path file) throws IOException {
+        TokenScanner tokenScanner = scan(file);
+        Token token;
+        while ((token = tokenScanner.nextToken()) != null) {
+            tokens.add(token);
+        }
+    }
 
-                boolean inString = false;
-                StringBuilder currentStringLiteral = new StringBuilder();
-
-                for (String token : tokensInLine) {
-                    if (token.equals("\"")) {
-                        inString = !inString;
-                        if (!inString && currentStringLiteral.length() > 0) {
-                            analyzeToken("\"" + currentStringLiteral.toString() + "\"", lineNumber);
-                            currentStringLiteral.setLength(0);
-                        }
-                    } else if (inString) {
-                        currentStringLiteral.append(token);
-                    } else {
-                        analyzeToken(token, lineNumber);
-                    }
-                }
-                if (inString) {
-                    errorHandler.addError("Unclosed string literal", lineNumber);
-                }
+    // Like processFile, but raw scanning of one large file is split across threads (see
+    // ParallelLexer). Small files, and files too big to map, are lexed serially.
+    public void processFileParallel(Path file, int parallelism) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (parallelism > 1 && size >= 2L * ParallelLexer.DEFAULT_CHUNK_SIZE && size <= Integer.MAX_VALUE) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                tokens.addAll(new ParallelLexer(spec, parallelism).lex(this, mapped));
+                return;
             }
         }
-        scanner.close();
-        if (inMultiLineComment) {
-            errorHandler.addError("Unclosed multi-line comment", lineNumber);
+        processFile(file);
+    }
+
+    // Scan the raw input once, collecting every token into the tokens list
+    public void processInput(String input) {
+        TokenScanner tokenScanner = scan(input);
+        Token token;
+        while ((token = tokenScanner.nextToken()) != null) {
+            tokens.add(token);
         }
     }
 
+    // Observes scanners created after this call (e.g. a shared LexerMetrics); null turns it off.
+    // Parallel and incremental lexing only report symbol inserts and errors.
+    public void setListener(LexerListener listener) {
+        this.listener = listener;
+    }
+
+    public LexerSpec getSpec() {
+        return spec;
+    }
+
+    public LexerListener getListener() {
+        return listener;
+    }
+
+    // Pool that token text of scanners created after this call is interned through
+    public void setStringPool(StringPool stringPool) {
+        this.stringPool = Objects.requireNonNull(stringPool);
+        this.held = null;
+    }
+
+    public StringPool getStringPool() {
+        return stringPool;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    // Shared global scope, or null when globals are kept in getSymbolTable()
+    public GlobalSymbolTable getGlobalSymbolTable() {
+        return globals;
+    }
+
+    public ErrorHandler getErrorHandler() {
+        return errorHandler;
+    }
+
     public void printTokens() {
         for (Token token : tokens) {
             System.out.println(token);
@@ -246,12 +376,44 @@ public class LexicalAnalyzer {
     }
     //for testing
     public boolean validateToken(String tokenType, String value) {
-        DFA dfa = dfas.get(tokenType);
-        return dfa != null && dfa.validate(value);
+        return spec.validate(tokenType, value);
     }
 
     public static void main(String[] args) {
-        LexicalAnalyzer analyzer = new LexicalAnalyzer();
+        if (args.length == 2 && args[0].equals("--compile-tables")) {
+            try {
+                LexerSpec.compile().save(Path.of(args[1]));
+                System.out.println("Lexer tables written to " + args[1]);
+            } catch (IOException e) {
+                System.out.println("Error writing lexer tables: " + e.getMessage());
+            }
+            return;
+        }
+        if (args.length == 2 && args[0].equals("--check-grammar")) {
+            try {
+                LexerSpec spec = LexerSpec.compile(LexerGrammar.load(Path.of(args[1])));
+                List<String> warnings = spec.checkRules();
+                for (String warning : warnings) {
+                    System.out.println("Warning: " + warning);
+                }
+                System.out.println(args[1] + ": " + spec.getRuleCount() + " rules, " + warnings.size() + " warnings");
+            } catch (IOException e) {
+                System.out.println("Error reading the grammar: " + e.getMessage());
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+            }
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--batch")) {
+            BatchLexer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        // --panic: panic-mode recovery, one error per bad statement (see test_files/recovery.xcl)
+        boolean panic = args.length == 1 && args[0].equals("--panic");
+        LexicalAnalyzer analyzer = panic
+                ? new LexicalAnalyzer(LexerSpec.defaultSpec(), new ErrorHandler(ErrorHandler.DEFAULT_MAX_ERRORS, true))
+                : new LexicalAnalyzer();
         Scanner scanner = new Scanner(System.in);
 
         System.out.println("Enter the name of your .xcl file (without extension):");
@@ -266,23 +428,19 @@ public class LexicalAnalyzer {
             return;
         }
 
-        StringBuilder input = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                input.append(line).append("\n");
+        System.out.println("\nComplete Token List:");
+        int tokenCount = 0;
+        try (TokenScanner tokenScanner = analyzer.scan(file.toPath())) {
+            Token token;
+            while ((token = tokenScanner.nextToken()) != null) {
+                System.out.println(token);
+                tokenCount++;
             }
-        } catch (IOException e) {
+        } catch (IOException | UncheckedIOException e) {
             System.out.println("Error reading the file: " + e.getMessage());
             return;
         }
-
-        analyzer.processInput(input.toString());
-        System.out.println("\nComplete Token List:");
-        for (Token token : analyzer.tokens) {
-            System.out.println(token);
-        }
-        System.out.println("Number of Tokens: " + analyzer.tokens.size());
+        System.out.println("Number of Tokens: " + tokenCount);
 
         analyzer.symbolTable.printTable();
         analyzer.errorHandler.printErrors();
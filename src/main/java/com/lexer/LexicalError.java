@@ -0,0 +1,112 @@
+package com.lexer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+// One lexical error. Nothing is formatted until message() or toString() is called.
+// line is the line the error is reported on; column (1-based, in bytes), offset and length locate
+// the offending span. They coincide except for an unclosed comment, which is reported on the last
+// line while its span starts at the opening "/*". text is the offending token, if the message shows it;
+// the scanner hands it over as undecoded bytes (a panic-mode span can be a whole line), and it is
+// decoded on the first call to text().
+public final class LexicalError {
+    public enum Code {
+        UNRECOGNIZED_TOKEN("Unrecognized token"),
+        INVALID_GLOBAL_IDENTIFIER("Invalid global identifier"),
+        UNCLOSED_STRING("Unclosed string literal"),
+        UNCLOSED_COMMENT("Unclosed multi-line comment");
+
+        private final String description;
+
+        Code(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private final Code code;
+    private final int line;
+    private final int column;
+    private final long offset;
+    private final int length;
+    private Object text; // String, the UTF-8 bytes as a ByteBuffer until decoded, or null
+
+    public LexicalError(Code code, int line, int column, long offset, int length, String text) {
+        this(code, line, column, offset, length, (Object) text);
+    }
+
+    // text holds the UTF-8 bytes of the offending token and must not change afterwards
+    LexicalError(Code code, int line, int column, long offset, int length, ByteBuffer text) {
+        this(code, line, column, offset, length, (Object) text);
+    }
+
+    private LexicalError(Code code, int line, int column, long offset, int length, Object text) {
+        this.code = Objects.requireNonNull(code);
+        this.line = line;
+        this.column = column;
+        this.offset = offset;
+        this.length = length;
+        this.text = text;
+    }
+
+    public Code code() {
+        return code;
+    }
+
+    public int line() {
+        return line;
+    }
+
+    public int column() {
+        return column;
+    }
+
+    public long offset() {
+        return offset;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    // Decoded once; a String is immutable, so a racing second decode only does the work twice
+    public String text() {
+        if (text instanceof ByteBuffer bytes) {
+            byte[] copy = new byte[bytes.remaining()];
+            bytes.get(bytes.position(), copy);
+            text = new String(copy, StandardCharsets.UTF_8);
+        }
+        return (String) text;
+    }
+
+    public String message() {
+        String text = text();
+        return text == null ? code.description : code.description + ": " + text;
+    }
+
+    // Same error reported on another line (region scans number lines from the region start)
+    LexicalError withLine(int line) {
+        return new LexicalError(code, line, column, offset, length, text);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof LexicalError other && code == other.code && line == other.line
+                && column == other.column && offset == other.offset && length == other.length
+                && Objects.equals(text(), other.text());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(code, line, column, offset, length, text());
+    }
+
+    @Override
+    public String toString() {
+        return "Error at line " + line + ": " + message();
+    }
+}
@@ -0,0 +1,220 @@
+package com.lexer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Lexes one large input in parallel chunks and produces exactly the serial result.
+//
+// Chunks are cut right after a newline. No lexeme spans a newline except a block comment, so the
+// only state that can leak across a boundary is "inside a comment". Every chunk is first scanned
+// speculatively as if it started outside a comment, recording raw lexemes, scanner errors and the
+// line starts it reached outside comments. The chunks are then stitched in order: when the previous
+// chunk really ended inside a comment, the chunk is rescanned from its start in comment mode until
+// it reaches a line start the speculative scan also reached outside a comment; from there on both
+// scans are identical, so the rest of the speculative result is reused. Finally the raw lexemes are
+// replayed through the session in input order, so classification, the symbol table and errors are
+// the same as for a serial scan.
+public class ParallelLexer {
+    static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private final LexerSpec spec;
+    private final int parallelism;
+    private final int chunkSize;
+
+    public ParallelLexer(LexerSpec spec, int parallelism, int chunkSize) {
+        if (parallelism < 1 || chunkSize < 1) {
+            throw new IllegalArgumentException("Parallelism and chunk size must be positive");
+        }
+        this.spec = spec;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+    }
+
+    public ParallelLexer(LexerSpec spec, int parallelism) {
+        this(spec, parallelism, DEFAULT_CHUNK_SIZE);
+    }
+
+    // Raw scan result of one region: lexemes and scanner errors in order, plus resync points
+    private static final class ChunkScan implements TokenScanner.RegionListener {
+        static final int ERROR = -2;
+
+        int[] kinds = new int[256];   // rule, -1 for an unknown word, ERROR for a scanner error
+        int[] keywords = new int[256]; // scanner keyword index, or -1
+        int[] offsets = new int[256]; // lexeme offset, or index into errors
+        int[] lengths = new int[256];
+        int[] lines = new int[256];   // line relative to the region start (1-based)
+        int[] columns = new int[256]; // 1-based byte column, known during the scan
+        int size;
+        final List<LexicalError> errors = new ArrayList<>();
+        // Line start offset reached outside comments -> index of the next event
+        final Map<Integer, Integer> syncPoints = new HashMap<>();
+        int lineCount;                // newlines in the region
+        boolean endedInComment;
+        long commentStart;            // where the comment it ended inside opened
+        int commentColumn;
+        // Stop the scan at the first line start contained in this map (used when rescanning)
+        Map<Integer, Integer> stopAt;
+        int stoppedAt = -1;
+
+        void add(int kind, int keyword, int offset, int length, int line, int column) {
+            if (size == kinds.length) {
+                int capacity = size * 2;
+                kinds = Arrays.copyOf(kinds, capacity);
+                keywords = Arrays.copyOf(keywords, capacity);
+                offsets = Arrays.copyOf(offsets, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+                lines = Arrays.copyOf(lines, capacity);
+                columns = Arrays.copyOf(columns, capacity);
+            }
+            kinds[size] = kind;
+            keywords[size] = keyword;
+            offsets[size] = offset;
+            lengths[size] = length;
+            lines[size] = line;
+            columns[size] = column;
+            size++;
+        }
+
+        @Override
+        public void lexicalError(LexicalError error) {
+            add(ERROR, -1, errors.size(), 0, error.line(), error.column());
+            errors.add(error);
+        }
+
+        @Override
+        public boolean lineStart(int offset) {
+            if (stopAt != null) {
+                if (stopAt.containsKey(offset)) {
+                    stoppedAt = offset;
+                    return true;
+                }
+                return false;
+            }
+            syncPoints.put(offset, size);
+            return false;
+        }
+    }
+
+    // commentStart >= 0: the region starts inside a comment opened there, at commentColumn
+    private ChunkScan scanChunk(ByteBuffer input, int start, int end, long commentStart, int commentColumn,
+                                boolean panicRecovery, Map<Integer, Integer> stopAt) throws IOException {
+        ChunkScan scan = new ChunkScan();
+        scan.stopAt = stopAt;
+        TokenScanner scanner = new TokenScanner(spec, input, start, end, commentStart, commentColumn,
+                panicRecovery, scan);
+        while (scanner.advanceRaw()) {
+            scan.add(scanner.currentRule(), scanner.currentKeyword(), scanner.position(), scanner.currentLength(),
+                    scanner.currentLine(), scanner.column());
+            scanner.consume();
+        }
+        scan.lineCount = scanner.getLineNumber() - 1;
+        scan.endedInComment = scanner.endedInComment();
+        scan.commentStart = scanner.openCommentStart();
+        scan.commentColumn = scanner.openCommentColumn();
+        return scan;
+    }
+
+    // Chunk boundaries, each just after a newline
+    private int[] boundaries(ByteBuffer input) {
+        List<Integer> cuts = new ArrayList<>();
+        cuts.add(0);
+        int length = input.limit();
+        int next = chunkSize;
+        while (next < length) {
+            int cut = next;
+            while (cut < length && input.get(cut - 1) != '\n') cut++;
+            if (cut >= length) break;
+            cuts.add(cut);
+            next = cut + chunkSize;
+        }
+        cuts.add(length);
+        return cuts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Lexes input (positioned at 0) with the given session; tokens are returned in input order
+    public List<Token> lex(LexicalAnalyzer session, ByteBuffer input) throws IOException {
+        ByteBuffer whole = input.slice();
+        int[] cuts = boundaries(whole);
+        int chunks = cuts.length - 1;
+        boolean panicRecovery = session.getErrorHandler().isPanicRecovery();
+
+        List<ChunkScan> speculative = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<ChunkScan>> tasks = new ArrayList<>();
+            for (int i = 0; i < chunks; i++) {
+                int start = cuts[i];
+                int end = cuts[i + 1];
+                tasks.add(pool.submit(() -> scanChunk(whole, start, end, -1, 0, panicRecovery, null)));
+            }
+            for (ForkJoinTask<ChunkScan> task : tasks) {
+                speculative.add(task.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Parallel lexing interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException unchecked) throw unchecked.getCause();
+            if (cause instanceof IOException io) throw io;
+            throw new IllegalStateException("Parallel lexing failed", cause);
+        } finally {
+            pool.shutdown();
+        }
+
+        // Stitch the chunks in order, rescanning the ones that really start inside a comment
+        TokenScanner replay = new TokenScanner(session, whole);
+        List<Token> tokens = new ArrayList<>();
+        ChunkScan open = null; // scan whose region ended inside a comment, carrying where it opened
+        int lineBase = 0;
+        for (int i = 0; i < chunks; i++) {
+            ChunkScan chunk = speculative.get(i);
+            ChunkScan last;
+            if (open != null) {
+                ChunkScan rescan = scanChunk(whole, cuts[i], cuts[i + 1], open.commentStart, open.commentColumn,
+                        panicRecovery, chunk.syncPoints);
+                replay(session, replay, rescan, 0, rescan.size, lineBase, tokens);
+                if (rescan.stoppedAt >= 0) {
+                    replay(session, replay, chunk, chunk.syncPoints.get(rescan.stoppedAt), chunk.size, lineBase, tokens);
+                    last = chunk;
+                } else {
+                    last = rescan;
+                }
+            } else {
+                replay(session, replay, chunk, 0, chunk.size, lineBase, tokens);
+                last = chunk;
+            }
+            open = last.endedInComment ? last : null;
+            lineBase += chunk.lineCount;
+        }
+        return tokens;
+    }
+
+    private static void replay(LexicalAnalyzer session, TokenScanner lexeme, ChunkScan chunk, int from, int to,
+                               int lineBase, List<Token> tokens) {
+        for (int i = from; i < to; i++) {
+            int line = lineBase + chunk.lines[i];
+            int kind = chunk.kinds[i];
+            if (kind == ChunkScan.ERROR) {
+                session.lexicalError(chunk.errors.get(chunk.offsets[i]).withLine(line));
+                continue;
+            }
+            int offset = chunk.offsets[i];
+            int length = chunk.lengths[i];
+            lexeme.seek(offset, chunk.columns[i]);
+            String type;
+            if (kind == -1) {
+                session.unknown(lexeme, length, line);
+                type = "UNKNOWN";
+            } else {
+                type = session.classify(kind, chunk.keywords[i], lexeme, length);
+            }
+            tokens.add(lexeme.token(type, length, line));
+        }
+    }
+}
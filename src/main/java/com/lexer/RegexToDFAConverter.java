@@ -3,18 +3,96 @@ package com.lexer;
 import java.util.*;
 
 class RegexToDFAConverter {
+    // One line per converted DFA: state count before and after minimization
+    private final List<String> minimizationReport = new ArrayList<>();
+    // NFA state ids of the current compilation
+    private int nextStateId;
 
     //regular expression to a DFA
     public DFA convertRegexToDFA(String regex) {
-        NFA nfa = regexToNFA(regex);
-        DFA dfa = nfaToDFA(nfa);
+        DFA dfa = compileRegex(regex);
         if(regex!="\"[^\"]*\"") {
             System.out.println("Transition Table for " + regex + ":");
             dfa.displayTable();
+            System.out.println("States (before -> after minimization): "
+                    + minimizationReport.get(minimizationReport.size() - 1));
         }
         return dfa;
     }
 
+    // Regex -> NFA -> DFA -> minimized DFA, without printing the table
+    DFA compileRegex(String regex) {
+        nextStateId = 0;
+        return minimize(regex, nfaToDFA(regexToNFA(regex)));
+    }
+
+    // Union of several token rules into one scanner DFA; the list order is the rule priority
+    public DFA convertRulesToDFA(List<String> regexes) {
+        return convertRulesToDFA(regexes, List.of());
+    }
+
+    // As above, plus one branch per keyword so that the state reached after reading a keyword
+    // tells which keyword it was (DFA.getKeyword). Keywords do not change which rules accept.
+    public DFA convertRulesToDFA(List<String> regexes, List<String> keywords) {
+        return minimize("combined " + regexes, nfaToDFA(combinedNFA(regexes, keywords)));
+    }
+
+    // The same rules and keywords for LazyDFA, which only builds the states an input reaches
+    LazyDFA.Program lazyProgram(List<String> regexes, List<String> keywords) {
+        NFA nfa = combinedNFA(regexes, keywords);
+        int[] classOf = computeCharClasses(nfa);
+        int classCount = 0;
+        for (int cls : classOf) {
+            classCount = Math.max(classCount, cls + 1);
+        }
+        return new LazyDFA.Program(nfa, nextStateId, classOf, classCount);
+    }
+
+    // Thompson NFA of all rules under one start state; final states carry their rule index
+    private NFA combinedNFA(List<String> regexes, List<String> keywords) {
+        if (regexes.size() > Integer.SIZE) {
+            throw new IllegalArgumentException("Too many token rules: " + regexes.size());
+        }
+        nextStateId = 0;
+        State start = newState();
+        Set<State> finalStates = new HashSet<>();
+
+        for (int rule = 0; rule < regexes.size(); rule++) {
+            NFA nfa = regexToNFA(regexes.get(rule));
+            for (State state : nfa.finalStates) {
+                state.acceptRule = rule;
+            }
+            start.addTransition('\0', nfa.startState); // Epsilon transition
+            finalStates.addAll(nfa.finalStates);
+        }
+        for (int keyword = 0; keyword < keywords.size(); keyword++) {
+            State state = newState();
+            start.addTransition('\0', state);
+            for (char c : keywords.get(keyword).toCharArray()) {
+                State next = newState();
+                state.addTransition(c, next);
+                state = next;
+            }
+            state.acceptKeyword = keyword;
+        }
+        return new NFA(start, finalStates);
+    }
+
+    public List<String> getMinimizationReport() {
+        return Collections.unmodifiableList(minimizationReport);
+    }
+
+    public void printMinimizationReport() {
+        System.out.println("DFA minimization (states before -> after):");
+        for (String line : minimizationReport) {
+            System.out.println(line);
+        }
+    }
+
+
+    private State newState() {
+        return new State(nextStateId++);
+    }
 
     private NFA regexToNFA(String regex) {
         Stack<NFA> stack = new Stack<>();
@@ -185,6 +263,7 @@ class RegexToDFAConverter {
     }
 
 
+    // A character class becomes one pair of states joined by range transitions
     private NFA characterClassNFA(String charClass) {
         boolean isNegated = false;
         if (charClass.startsWith("^")) {
@@ -192,8 +271,7 @@ class RegexToDFAConverter {
             charClass = charClass.substring(1); // Remove the '^' symbol
         }
 
-        NFA result = null;
-        Set<Character> includedChars = new HashSet<>();
+        BitSet includedChars = new BitSet();
 
         for (int i = 0; i < charClass.length(); i++) {
             char c = charClass.charAt(i);
@@ -201,38 +279,45 @@ class RegexToDFAConverter {
                 // Handle ranges (e.g., a-z)
                 char start = c;
                 char end = charClass.charAt(i + 2);
-                for (char ch = start; ch <= end; ch++) {
-                    includedChars.add(ch);
+                if (start <= end) {
+                    includedChars.set(start, end + 1);
                 }
                 i += 2; // Skip the range characters
             } else {
-                includedChars.add(c);
+                includedChars.set(c);
             }
         }
 
         if (isNegated) {
-            // Create an NFA that accepts any character except the ones in includedChars
-            for (char ch = 32; ch <= 126; ch++) { // ASCII printable range
-                if (!includedChars.contains(ch)) {
-                    NFA singleCharNFA = singleCharNFA(ch);
-                    result = (result == null) ? singleCharNFA : union(result, singleCharNFA);
-                }
-            }
-        } else {
-            // Create an NFA for only the included characters
-            for (char ch : includedChars) {
-                NFA singleCharNFA = singleCharNFA(ch);
-                result = (result == null) ? singleCharNFA : union(result, singleCharNFA);
-            }
+            // Any character except the ones in includedChars, within the ASCII printable range.
+            // The scanner runs over UTF-8, so bytes 0x80-0xFF (non-ASCII sequences) are included too.
+            BitSet printable = new BitSet();
+            printable.set(32, 127);
+            printable.set(0x80, 0x100);
+            printable.andNot(includedChars);
+            includedChars = printable;
+        }
+
+        State start = newState();
+        State end = newState();
+        end.isFinal = true;
+
+        for (int from = includedChars.nextSetBit(0); from >= 0; ) {
+            int to = includedChars.nextClearBit(from) - 1;
+            start.addRangeTransition((char) from, (char) to, end);
+            from = includedChars.nextSetBit(to + 1);
         }
 
-        return result;
+        Set<State> finalStates = new HashSet<>();
+        finalStates.add(end);
+
+        return new NFA(start, finalStates);
     }
 
 
     private NFA singleCharNFA(char c) {
-        State start = new State(State.getNextId());
-        State end = new State(State.getNextId());
+        State start = newState();
+        State end = newState();
         end.isFinal = true;
 
         start.addTransition(c, end);
@@ -256,8 +341,8 @@ class RegexToDFAConverter {
 
 
     private NFA union(NFA nfa1, NFA nfa2) {
-        State start = new State(State.getNextId());
-        State end = new State(State.getNextId());
+        State start = newState();
+        State end = newState();
         end.isFinal = true;
 
         start.addTransition('\0', nfa1.startState); // Epsilon transition
@@ -281,8 +366,8 @@ class RegexToDFAConverter {
 
 
     private NFA kleeneStar(NFA nfa) {
-        State start = new State(State.getNextId());
-        State end = new State(State.getNextId());
+        State start = newState();
+        State end = newState();
         end.isFinal = true;
 
         start.addTransition('\0', nfa.startState); // Epsilon transition
@@ -302,9 +387,22 @@ class RegexToDFAConverter {
 
 
     private DFA nfaToDFA(NFA nfa) {
+        int[] classOf = computeCharClasses(nfa);
+        int classCount = 0;
+        for (int cls : classOf) {
+            classCount = Math.max(classCount, cls + 1);
+        }
+        // Any member of a class behaves like every other member, so one representative per class is enough
+        char[] representative = new char[classCount];
+        for (int c = classOf.length - 1; c >= 0; c--) {
+            if (classOf[c] >= 0) {
+                representative[classOf[c]] = (char) c;
+            }
+        }
+
         Map<Set<State>, Integer> stateMap = new HashMap<>();
         Queue<Set<State>> queue = new LinkedList<>();
-        DFA dfa = new DFA(0);
+        DFA dfa = new DFA(0, classOf, classCount);
 
         Set<State> startSet = epsilonClosure(Collections.singleton(nfa.startState));
         stateMap.put(startSet, 0);
@@ -316,29 +414,29 @@ class RegexToDFAConverter {
             Set<State> currentSet = queue.poll();
             int currentStateId = stateMap.get(currentSet);
 
-            // Check if this set contains a final state
+            // Check if this set contains a final state (tagging every rule it accepts)
             for (State state : currentSet) {
                 if (nfa.finalStates.contains(state)) {
-                    dfa.addFinalState(currentStateId);
-                    break;
+                    dfa.addFinalState(currentStateId, state.acceptRule);
+                }
+                if (state.acceptKeyword >= 0) {
+                    dfa.setKeyword(currentStateId, state.acceptKeyword);
                 }
             }
 
-
-            Map<Character, Set<State>> transitions = new HashMap<>();
-            for (State state : currentSet) {
-                for (Map.Entry<Character, Set<State>> entry : state.transitions.entrySet()) {
-                    char symbol = entry.getKey();
-                    if (symbol != '\0') { // Ignore epsilon transitions
-                        transitions.putIfAbsent(symbol, new HashSet<>());
-                        transitions.get(symbol).addAll(entry.getValue());
+            for (int cls = 0; cls < classCount; cls++) {
+                char symbol = representative[cls];
+                Set<State> moveSet = new HashSet<>();
+                for (State state : currentSet) {
+                    for (State.RangeTransition transition : state.transitions) {
+                        if (transition.matches(symbol)) {
+                            moveSet.add(transition.target);
+                        }
                     }
                 }
-            }
+                if (moveSet.isEmpty()) continue;
 
-            for (Map.Entry<Character, Set<State>> entry : transitions.entrySet()) {
-                char symbol = entry.getKey();
-                Set<State> nextSet = epsilonClosure(entry.getValue());
+                Set<State> nextSet = epsilonClosure(moveSet);
 
                 if (!stateMap.containsKey(nextSet)) {
                     stateMap.put(nextSet, nextStateId);
@@ -347,7 +445,7 @@ class RegexToDFAConverter {
                 }
 
                 int nextState = stateMap.get(nextSet);
-                dfa.addTransition(currentStateId, symbol, nextState);
+                dfa.addClassTransition(currentStateId, cls, nextState);
             }
         }
 
@@ -355,13 +453,191 @@ class RegexToDFAConverter {
     }
 
 
+    // Hopcroft partition refinement. States are equivalent when they accept the same rules (and
+    // keyword) and move to equivalent states on every class; a missing transition goes to an implicit dead state.
+    private DFA minimize(String description, DFA dfa) {
+        int n = dfa.getStateCount();
+        int classCount = dfa.getClassCount();
+        int dead = n;
+        int total = n + 1;
+
+        // Inverse transitions: for each class, the predecessors of every state
+        List<List<List<Integer>>> inverse = new ArrayList<>();
+        for (int cls = 0; cls < classCount; cls++) {
+            List<List<Integer>> predecessors = new ArrayList<>();
+            for (int s = 0; s < total; s++) {
+                predecessors.add(new ArrayList<>());
+            }
+            for (int s = 0; s < total; s++) {
+                int next = s == dead ? -1 : dfa.getNextStateByClass(s, cls);
+                predecessors.get(next == -1 ? dead : next).add(s);
+            }
+            inverse.add(predecessors);
+        }
+
+        // Initial partition: one block per distinct accept mask and keyword (the dead state accepts nothing)
+        List<List<Integer>> blocks = new ArrayList<>();
+        int[] blockOf = new int[total];
+        Map<Long, Integer> blockByMask = new HashMap<>();
+        for (int s = 0; s < total; s++) {
+            long mask = s == dead ? -1L << 32 : (long) dfa.getKeyword(s) << 32 | (dfa.getAcceptMask(s) & 0xFFFFFFFFL);
+            int block = blockByMask.computeIfAbsent(mask, k -> {
+                blocks.add(new ArrayList<>());
+                return blocks.size() - 1;
+            });
+            blocks.get(block).add(s);
+            blockOf[s] = block;
+        }
+
+        Deque<Integer> worklist = new ArrayDeque<>();
+        Set<Integer> inWorklist = new HashSet<>();
+        for (int b = 0; b < blocks.size(); b++) {
+            worklist.add(b);
+            inWorklist.add(b);
+        }
+
+        while (!worklist.isEmpty()) {
+            int splitter = worklist.poll();
+            inWorklist.remove(splitter);
+            List<Integer> splitterStates = new ArrayList<>(blocks.get(splitter));
+
+            for (int cls = 0; cls < classCount; cls++) {
+                // States that move into the splitter on this class, grouped by their block
+                Map<Integer, Set<Integer>> touched = new HashMap<>();
+                for (int target : splitterStates) {
+                    for (int s : inverse.get(cls).get(target)) {
+                        touched.computeIfAbsent(blockOf[s], k -> new HashSet<>()).add(s);
+                    }
+                }
+
+                for (Map.Entry<Integer, Set<Integer>> entry : touched.entrySet()) {
+                    int block = entry.getKey();
+                    Set<Integer> inside = entry.getValue();
+                    List<Integer> members = blocks.get(block);
+                    if (inside.size() == members.size()) continue;
+
+                    List<Integer> kept = new ArrayList<>();
+                    List<Integer> moved = new ArrayList<>();
+                    for (int s : members) {
+                        (inside.contains(s) ? moved : kept).add(s);
+                    }
+                    blocks.set(block, kept);
+                    blocks.add(moved);
+                    int newBlock = blocks.size() - 1;
+                    for (int s : moved) {
+                        blockOf[s] = newBlock;
+                    }
+
+                    if (inWorklist.contains(block) || kept.size() > moved.size()) {
+                        worklist.add(newBlock);
+                        inWorklist.add(newBlock);
+                    } else {
+                        worklist.add(block);
+                        inWorklist.add(block);
+                    }
+                }
+            }
+        }
+
+        // Number the surviving blocks in breadth-first order from the start state, dropping the dead block
+        int[] newId = new int[blocks.size()];
+        Arrays.fill(newId, -1);
+        int deadBlock = blockOf[dead];
+        DFA minimized = new DFA(0, dfa.getClassMap(), classCount);
+        Queue<Integer> queue = new LinkedList<>();
+        newId[blockOf[dfa.startState]] = 0;
+        queue.add(blockOf[dfa.startState]);
+        int nextStateId = 1;
+
+        while (!queue.isEmpty()) {
+            int block = queue.poll();
+            int representative = blocks.get(block).get(0);
+            int mask = dfa.getAcceptMask(representative);
+            for (int rule = 0; mask != 0; rule++, mask >>>= 1) {
+                if ((mask & 1) != 0) {
+                    minimized.addFinalState(newId[block], rule);
+                }
+            }
+            if (dfa.getKeyword(representative) >= 0) {
+                minimized.setKeyword(newId[block], dfa.getKeyword(representative));
+            }
+            for (int cls = 0; cls < classCount; cls++) {
+                int next = dfa.getNextStateByClass(representative, cls);
+                if (next == -1 || blockOf[next] == deadBlock) continue;
+                int nextBlock = blockOf[next];
+                if (newId[nextBlock] == -1) {
+                    newId[nextBlock] = nextStateId++;
+                    queue.add(nextBlock);
+                }
+                minimized.addClassTransition(newId[block], cls, newId[nextBlock]);
+            }
+        }
+
+        minimizationReport.add(description + ": " + n + " -> " + minimized.getStateCount());
+        return minimized;
+    }
+
+
+    // Split the alphabet into equivalence classes: two characters share a class when exactly the
+    // same range transitions accept them. Returns char -> class id (-1 for characters no rule uses).
+    private int[] computeCharClasses(NFA nfa) {
+        List<State.RangeTransition> ranges = new ArrayList<>();
+        Set<State> visited = new HashSet<>();
+        Queue<State> queue = new LinkedList<>();
+        visited.add(nfa.startState);
+        queue.add(nfa.startState);
+
+        while (!queue.isEmpty()) {
+            State state = queue.poll();
+            List<State> successors = new ArrayList<>(state.epsilonTransitions);
+            for (State.RangeTransition transition : state.transitions) {
+                ranges.add(transition);
+                successors.add(transition.target);
+            }
+            for (State next : successors) {
+                if (visited.add(next)) {
+                    queue.add(next);
+                }
+            }
+        }
+
+        // Boundaries of the elementary intervals that no range can split
+        TreeSet<Integer> boundaries = new TreeSet<>();
+        for (State.RangeTransition transition : ranges) {
+            boundaries.add((int) transition.from);
+            boundaries.add(transition.to + 1);
+        }
+        int[] classOf = new int[boundaries.isEmpty() ? 0 : boundaries.last()];
+        Arrays.fill(classOf, -1);
+
+        Map<BitSet, Integer> classBySignature = new HashMap<>();
+        Integer lo = null;
+        for (int hi : boundaries) {
+            if (lo != null) {
+                BitSet signature = new BitSet(ranges.size());
+                for (int i = 0; i < ranges.size(); i++) {
+                    if (ranges.get(i).matches((char) (int) lo)) {
+                        signature.set(i);
+                    }
+                }
+                if (!signature.isEmpty()) {
+                    Integer cls = classBySignature.computeIfAbsent(signature, k -> classBySignature.size());
+                    Arrays.fill(classOf, lo, hi, cls);
+                }
+            }
+            lo = hi;
+        }
+        return classOf;
+    }
+
+
     private Set<State> epsilonClosure(Set<State> states) {
         Set<State> closure = new HashSet<>(states);
         Queue<State> queue = new LinkedList<>(states);
 
         while (!queue.isEmpty()) {
             State state = queue.poll();
-            for (State nextState : state.transitions.getOrDefault('\0', Collections.emptySet())) {
+            for (State nextState : state.epsilonTransitions) {
                 if (!closure.contains(nextState)) {
                     closure.add(nextState);
                     queue.add(nextState);
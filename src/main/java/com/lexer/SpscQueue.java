@@ -0,0 +1,93 @@
+package com.lexer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Bounded ring buffer between two pipeline stages: one producer thread, one consumer thread.
+// Items are passed through head and tail counters alone, without locks. A side that finds the ring
+// full (or empty) parks until the other side moves; a full ring is what stalls the producer when
+// the consumer falls behind.
+final class SpscQueue<T> {
+    private final Object[] items;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // next slot to take; written by the consumer only
+    private final AtomicLong tail = new AtomicLong(); // next slot to fill; written by the producer only
+    private volatile boolean finished;  // the producer will put nothing more
+    private volatile boolean cancelled;
+    private volatile Thread waitingProducer;
+    private volatile Thread waitingConsumer;
+
+    SpscQueue(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        this.items = new Object[size];
+        this.mask = size - 1;
+    }
+
+    // Waits for a free slot; false if the queue was cancelled
+    boolean put(T item) {
+        long t = tail.get();
+        while (t - head.get() == items.length) {
+            if (cancelled) return false;
+            waitingProducer = Thread.currentThread();
+            // Re-check after announcing ourselves, so a take() in between cannot be missed
+            if (t - head.get() == items.length && !cancelled) {
+                LockSupport.park(this);
+            }
+            waitingProducer = null;
+        }
+        if (cancelled) return false;
+        items[(int) t & mask] = item;
+        tail.set(t + 1);
+        wake(waitingConsumer);
+        return true;
+    }
+
+    // Next item; null once the producer has finished and the queue is drained, or when cancelled
+    @SuppressWarnings("unchecked")
+    T take() {
+        long h = head.get();
+        while (tail.get() == h) {
+            if (cancelled) return null;
+            if (finished) {
+                // finish() comes after the last put(), so one more look at tail decides
+                if (tail.get() == h) return null;
+                break;
+            }
+            waitingConsumer = Thread.currentThread();
+            if (tail.get() == h && !finished && !cancelled) {
+                LockSupport.park(this);
+            }
+            waitingConsumer = null;
+        }
+        if (cancelled) return null;
+        int slot = (int) h & mask;
+        T item = (T) items[slot];
+        items[slot] = null;
+        head.set(h + 1);
+        wake(waitingProducer);
+        return item;
+    }
+
+    // Called by the producer after its last put()
+    void finish() {
+        finished = true;
+        wake(waitingConsumer);
+    }
+
+    // Stops both sides: a blocked put() returns false and take() returns null
+    void cancel() {
+        cancelled = true;
+        wake(waitingProducer);
+        wake(waitingConsumer);
+    }
+
+    private static void wake(Thread thread) {
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+}
@@ -2,25 +2,49 @@ package com.lexer;
 
 import java.util.*;
 
+// NFA state. Ids are only unique within one RegexToDFAConverter compilation.
 class State {
     int id;
-    Map<Character, Set<State>> transitions;
+    List<RangeTransition> transitions; // [from-to] -> state
+    Set<State> epsilonTransitions;
     boolean isFinal;
+    int acceptRule; // rule index this final state belongs to in a combined NFA
+    int acceptKeyword = -1; // keyword index spelled out on the way to this state, or -1
 
-    private static int nextId = 0;
+    // Transition on any character in the inclusive range [from, to]
+    static final class RangeTransition {
+        final char from;
+        final char to;
+        final State target;
+
+        RangeTransition(char from, char to, State target) {
+            this.from = from;
+            this.to = to;
+            this.target = target;
+        }
+
+        boolean matches(char c) {
+            return c >= from && c <= to;
+        }
+    }
 
     public State(int id) {
         this.id = id;
-        this.transitions = new HashMap<>();
+        this.transitions = new ArrayList<>();
+        this.epsilonTransitions = new HashSet<>();
         this.isFinal = false;
     }
 
+    // '\0' is the epsilon symbol
     public void addTransition(char symbol, State state) {
-        transitions.putIfAbsent(symbol, new HashSet<>());
-        transitions.get(symbol).add(state);
+        if (symbol == '\0') {
+            epsilonTransitions.add(state);
+        } else {
+            addRangeTransition(symbol, symbol, state);
+        }
     }
 
-    public static int getNextId() {
-        return nextId++;
+    public void addRangeTransition(char from, char to, State state) {
+        transitions.add(new RangeTransition(from, to, state));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,150 @@
+package com.lexer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Canonical Strings for token text, looked up by the UTF-8 bytes of the input slice. A repeated
+// identifier, keyword or literal is hashed and compared in place and gets the String decoded the
+// first time, so it neither allocates nor decodes again. Thread-safe: one pool can serve every
+// session of a batch. Once maxEntries values are pooled, new values are decoded but not added.
+public final class StringPool {
+    public static final int DEFAULT_MAX_ENTRIES = 1 << 12;
+    // Longer slices (long string literals) are rarely repeated and are always decoded
+    static final int MAX_POOLED_LENGTH = 64;
+
+    // Lock-free reads; writes only lock the hash bin they land in
+    private final ConcurrentHashMap<Key, String> values = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public StringPool() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public StringPool(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    // Input bytes as a map key. Pooled keys own a copy; a Probe points into the caller's buffer.
+    private static class Key {
+        byte[] bytes;
+        int offset;
+        int length;
+        int hash;
+
+        Key(byte[] bytes, int offset, int length, int hash) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && length == other.length && hash == other.hash
+                    && Arrays.equals(bytes, offset, offset + length, other.bytes, other.offset, other.offset + length);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // Reusable lookup key of one scanner, so a hit allocates nothing; not thread-safe
+    static final class Probe extends Key {
+        private byte[] scratch = new byte[MAX_POOLED_LENGTH]; // for buffers without an accessible array
+
+        Probe() {
+            super(null, 0, 0, 0);
+        }
+    }
+
+    // Text of input[start, start + length); pooled if short enough
+    String intern(Probe probe, ByteBuffer input, int start, int length) {
+        byte[] array;
+        int offset;
+        if (length > MAX_POOLED_LENGTH) {
+            misses.increment();
+            return decode(input, start, length);
+        }
+        if (input.hasArray()) {
+            array = input.array();
+            offset = input.arrayOffset() + start;
+        } else {
+            array = probe.scratch;
+            offset = 0;
+            input.get(start, array, 0, length);
+        }
+        int hash = 1;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hash = 31 * hash + array[i];
+        }
+        probe.bytes = array;
+        probe.offset = offset;
+        probe.length = length;
+        probe.hash = hash;
+        String value = values.get(probe);
+        probe.bytes = null; // do not keep the input reachable
+        if (value != null) {
+            hits.increment();
+            return value;
+        }
+        misses.increment();
+        value = new String(array, offset, length, StandardCharsets.UTF_8);
+        if (values.size() < maxEntries) {
+            // Another thread may have added the same text; both get a String with the same contents
+            values.putIfAbsent(new Key(Arrays.copyOfRange(array, offset, offset + length), 0, length, hash), value);
+        }
+        return value;
+    }
+
+    private static String decode(ByteBuffer input, int start, int length) {
+        if (input.hasArray()) {
+            return new String(input.array(), input.arrayOffset() + start, length, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        input.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    // Lookups that had to decode, including slices too long to pool
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRate() {
+        long hits = getHits();
+        long lookups = hits + getMisses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public void clear() {
+        values.clear();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StringPool[%d/%d entries, %d hits, %d misses, hit rate %.1f%%]",
+                size(), maxEntries, getHits(), getMisses(), 100 * getHitRate());
+    }
+}
@@ -1,41 +1,374 @@
 package com.lexer;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
+// Symbols keyed by (name, scope). Names, scopes, types and values are interned to int ids, and the
+// (name id, scope id) pair is looked up in an open-addressing table of longs, so exists() and
+// repeated inserts do not allocate. Entries are stored as id columns and only turned into Symbol
+// objects when the table is listed. Literals are indexed apart from identifiers, and their values
+// are interned apart too. An interned string is released with the last entry that uses it.
 public class SymbolTable {
+    private static final int NONE = -1;
 
-    private Map<String, Symbol> table;
+    // Names, scopes, types and identifier values
+    private final Interner strings = new Interner();
+    // Literal values, which are mostly distinct and only used by their own entry
+    private final Interner literalValues = new Interner();
+    // Per scope id: first and last entry in that scope
+    private int[] scopeHead = filled(64);
+    private int[] scopeTail = filled(64);
+
+    // Entry columns; removed entry ids are reused through a free list
+    private int[] names = new int[64];
+    private int[] scopes = new int[64];
+    private int[] types = new int[64];
+    private int[] values = new int[64];
+    private boolean[] literal = new boolean[64];
+    private int[] nextInScope = new int[64];
+    private int[] prevInScope = new int[64];
+    private int[] nextInOrder = new int[64];
+    private int[] prevInOrder = new int[64];
+    private int entryCount;
+    private int freeEntry = NONE;
+    private int firstEntry = NONE;
+    private int lastEntry = NONE;
+    private int size;
+    private int literalCount;
+
+    private final KeyIndex identifiers = new KeyIndex();
+    private final KeyIndex literals = new KeyIndex();
 
     public SymbolTable() {
-        this.table = new HashMap<>();
     }
 
 
     public void insert(String name, String type, String scope, String value) {
-        String key = generateKey(name, scope);
-        if (!table.containsKey(key)) {
-            Symbol symbol = new Symbol(name, type, scope, value);
-            table.put(key, symbol);
+        if (find(identifiers, strings, name, scope) == NONE) {
+            int nameId = strings.intern(name);
+            int scopeId = strings.intern(scope);
+            identifiers.put(key(nameId, scopeId),
+                    addEntry(nameId, scopeId, strings.intern(type), strings.intern(value), false));
+        }
+    }
+
+    // Literal constants (numbers, strings, characters, booleans), deduplicated per scope
+    public void insertLiteral(String value, String type, String scope) {
+        if (find(literals, literalValues, value, scope) == NONE) {
+            int valueId = literalValues.intern(value);
+            int scopeId = strings.intern(scope);
+            literals.put(key(valueId, scopeId), addEntry(valueId, scopeId, strings.intern(type), valueId, true));
+            literalCount++;
         }
     }
 
 
     public boolean exists(String name, String scope) {
-        String key = generateKey(name, scope);
-        return table.containsKey(key);
+        return find(identifiers, strings, name, scope) != NONE;
+    }
+
+
+    // Sets or replaces the symbol for its name and scope (incremental re-lexing)
+    void put(Symbol symbol, boolean isLiteral) {
+        KeyIndex index = isLiteral ? literals : identifiers;
+        Interner pool = isLiteral ? literalValues : strings;
+        int entry = find(index, pool, symbol.getName(), symbol.getScope());
+        if (entry != NONE) {
+            // Take the new ids before releasing the old ones, which may be the same
+            int type = strings.intern(symbol.getType());
+            int value = pool.intern(symbol.getValue());
+            strings.retain(type);
+            pool.retain(value);
+            strings.release(types[entry]);
+            pool.release(values[entry]);
+            types[entry] = type;
+            values[entry] = value;
+            return;
+        }
+        int name = pool.intern(symbol.getName());
+        int scope = strings.intern(symbol.getScope());
+        index.put(key(name, scope), addEntry(name, scope, strings.intern(symbol.getType()),
+                pool.intern(symbol.getValue()), isLiteral));
+        if (isLiteral) literalCount++;
+    }
+
+    void remove(String name, String scope, boolean isLiteral) {
+        int nameId = (isLiteral ? literalValues : strings).find(name);
+        int scopeId = strings.find(scope);
+        if (nameId == NONE || scopeId == NONE) return;
+        KeyIndex index = isLiteral ? literals : identifiers;
+        int entry = index.remove(key(nameId, scopeId));
+        if (entry != NONE) {
+            removeEntry(entry);
+            if (isLiteral) literalCount--;
+        }
+    }
+
+    // Entry for (name, scope) without interning either, or NONE
+    private int find(KeyIndex index, Interner pool, String name, String scope) {
+        int nameId = pool.find(name);
+        int scopeId = strings.find(scope);
+        return nameId == NONE || scopeId == NONE ? NONE : index.get(key(nameId, scopeId));
+    }
+
+
+    private static long key(int name, int scope) {
+        return (long) name << 32 | (scope & 0xFFFFFFFFL);
+    }
+
+    // Takes a reference to each id of a new entry
+    private int addEntry(int name, int scope, int type, int value, boolean isLiteral) {
+        Interner pool = isLiteral ? literalValues : strings;
+        pool.retain(name);
+        strings.retain(scope);
+        strings.retain(type);
+        pool.retain(value);
+        if (scope >= scopeHead.length) {
+            int length = Math.max(scope + 1, scopeHead.length * 2);
+            scopeHead = grow(scopeHead, length);
+            scopeTail = grow(scopeTail, length);
+        }
+        int entry;
+        if (freeEntry != NONE) {
+            entry = freeEntry;
+            freeEntry = nextInOrder[entry];
+        } else {
+            if (entryCount == names.length) growEntries();
+            entry = entryCount++;
+        }
+        names[entry] = name;
+        scopes[entry] = scope;
+        types[entry] = type;
+        values[entry] = value;
+        literal[entry] = isLiteral;
+
+        prevInOrder[entry] = lastEntry;
+        nextInOrder[entry] = NONE;
+        if (lastEntry == NONE) firstEntry = entry; else nextInOrder[lastEntry] = entry;
+        lastEntry = entry;
+
+        prevInScope[entry] = scopeTail[scope];
+        nextInScope[entry] = NONE;
+        if (scopeTail[scope] == NONE) scopeHead[scope] = entry; else nextInScope[scopeTail[scope]] = entry;
+        scopeTail[scope] = entry;
+        size++;
+        return entry;
+    }
+
+    private void removeEntry(int entry) {
+        int prev = prevInOrder[entry];
+        int next = nextInOrder[entry];
+        if (prev == NONE) firstEntry = next; else nextInOrder[prev] = next;
+        if (next == NONE) lastEntry = prev; else prevInOrder[next] = prev;
+
+        int scope = scopes[entry];
+        prev = prevInScope[entry];
+        next = nextInScope[entry];
+        if (prev == NONE) scopeHead[scope] = next; else nextInScope[prev] = next;
+        if (next == NONE) scopeTail[scope] = prev; else prevInScope[next] = prev;
+
+        nextInOrder[entry] = freeEntry;
+        freeEntry = entry;
+        size--;
+
+        Interner pool = literal[entry] ? literalValues : strings;
+        pool.release(names[entry]);
+        strings.release(scope);
+        strings.release(types[entry]);
+        pool.release(values[entry]);
     }
 
+    private void growEntries() {
+        int capacity = names.length * 2;
+        names = Arrays.copyOf(names, capacity);
+        scopes = Arrays.copyOf(scopes, capacity);
+        types = Arrays.copyOf(types, capacity);
+        values = Arrays.copyOf(values, capacity);
+        literal = Arrays.copyOf(literal, capacity);
+        nextInScope = Arrays.copyOf(nextInScope, capacity);
+        prevInScope = Arrays.copyOf(prevInScope, capacity);
+        nextInOrder = Arrays.copyOf(nextInOrder, capacity);
+        prevInOrder = Arrays.copyOf(prevInOrder, capacity);
+    }
 
-    private String generateKey(String name, String scope) {
-        return name + ":" + scope;  // Combining name and scope with a delimiter
+    private static int[] filled(int length) {
+        int[] array = new int[length];
+        Arrays.fill(array, NONE);
+        return array;
+    }
+
+    private static int[] grow(int[] array, int length) {
+        int[] grown = Arrays.copyOf(array, length);
+        Arrays.fill(grown, array.length, length, NONE);
+        return grown;
+    }
+
+    private Symbol symbol(int entry) {
+        Interner pool = literal[entry] ? literalValues : strings;
+        return new Symbol(pool.get(names[entry]), strings.get(types[entry]), strings.get(scopes[entry]),
+                pool.get(values[entry]));
+    }
+
+
+    public int size() {
+        return size;
+    }
+
+    public int literalCount() {
+        return literalCount;
+    }
+
+    // All symbols and literals in insertion order
+    public List<Symbol> getSymbols() {
+        List<Symbol> symbols = new ArrayList<>(size);
+        for (int entry = firstEntry; entry != NONE; entry = nextInOrder[entry]) {
+            symbols.add(symbol(entry));
+        }
+        return Collections.unmodifiableList(symbols);
+    }
+
+    // Symbols and literals of one scope ("global" or a function name) in insertion order
+    public List<Symbol> getSymbols(String scope) {
+        int scopeId = strings.find(scope);
+        if (scopeId == NONE || scopeId >= scopeHead.length) return List.of();
+        List<Symbol> symbols = new ArrayList<>();
+        for (int entry = scopeHead[scopeId]; entry != NONE; entry = nextInScope[entry]) {
+            symbols.add(symbol(entry));
+        }
+        return Collections.unmodifiableList(symbols);
+    }
+
+    public List<Symbol> getLiterals() {
+        List<Symbol> symbols = new ArrayList<>(literalCount);
+        for (int entry = firstEntry; entry != NONE; entry = nextInOrder[entry]) {
+            if (literal[entry]) symbols.add(symbol(entry));
+        }
+        return Collections.unmodifiableList(symbols);
     }
 
 
     public void printTable() {
         System.out.println("\n--- Symbol Table ---");
-        for (Symbol symbol : table.values()) {
-            System.out.println(symbol);
+        for (int entry = firstEntry; entry != NONE; entry = nextInOrder[entry]) {
+            System.out.println(symbol(entry));
+        }
+    }
+
+    // Interned strings with reference counts; the id of a string whose count drops to 0 is reused
+    private static final class Interner {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private String[] strings = new String[64];
+        private int[] refs = new int[64];
+        private int count;
+        private int[] freeIds = new int[16];
+        private int freeCount;
+
+        int find(String s) {
+            Integer id = ids.get(s);
+            return id == null ? NONE : id;
+        }
+
+        // Id of s, added unreferenced if new; the caller retains it right away
+        int intern(String s) {
+            Integer known = ids.get(s);
+            if (known != null) return known;
+            int id;
+            if (freeCount > 0) {
+                id = freeIds[--freeCount];
+            } else {
+                if (count == strings.length) {
+                    strings = Arrays.copyOf(strings, count * 2);
+                    refs = Arrays.copyOf(refs, count * 2);
+                }
+                id = count++;
+            }
+            strings[id] = s;
+            ids.put(s, id);
+            return id;
+        }
+
+        String get(int id) {
+            return strings[id];
+        }
+
+        void retain(int id) {
+            refs[id]++;
+        }
+
+        void release(int id) {
+            if (--refs[id] > 0) return;
+            ids.remove(strings[id]);
+            strings[id] = null;
+            if (freeCount == freeIds.length) {
+                freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+            }
+            freeIds[freeCount++] = id;
+        }
+    }
+
+    // Open-addressing (linear probing) map from a (name id, scope id) key to an entry id
+    private static final class KeyIndex {
+        private long[] keys = new long[64];
+        private int[] entries = filled(64);
+        private int size;
+
+        private int slot(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & (keys.length - 1);
+        }
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key); ; i = (i + 1) & mask) {
+                if (entries[i] == NONE) return NONE;
+                if (keys[i] == key) return entries[i];
+            }
+        }
+
+        void put(long key, int entry) {
+            if (2 * (size + 1) > keys.length) resize();
+            int mask = keys.length - 1;
+            int i = slot(key);
+            while (entries[i] != NONE && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (entries[i] == NONE) size++;
+            keys[i] = key;
+            entries[i] = entry;
+        }
+
+        // Removes the key and returns its entry, or NONE; later keys of the probe run are shifted back
+        int remove(long key) {
+            int mask = keys.length - 1;
+            int i = slot(key);
+            while (entries[i] != NONE && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            int removed = entries[i];
+            if (removed == NONE) return NONE;
+            size--;
+            for (int j = (i + 1) & mask; entries[j] != NONE; j = (j + 1) & mask) {
+                int home = slot(keys[j]);
+                // Move j into the hole at i unless its home slot lies cyclically in (i, j]
+                boolean stays = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+                if (!stays) {
+                    keys[i] = keys[j];
+                    entries[i] = entries[j];
+                    i = j;
+                }
+            }
+            entries[i] = NONE;
+            return removed;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldEntries = entries;
+            keys = new long[oldKeys.length * 2];
+            entries = filled(oldKeys.length * 2);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldEntries[i] != NONE) put(oldKeys[i], oldEntries[i]);
+            }
         }
     }
 }
@@ -1,14 +1,34 @@
 package com.lexer;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 public class Token {
     private String type;
     private String value;
     private int lineNumber;
+    // Position of the token in the input (-1 when the token was built from a String)
+    private long offset;
+    private int length;
+    // Input bytes the value is decoded from on first use (null when the value was known up front)
+    private ByteBuffer source;
 
     public Token(String type, String value, int lineNumber) {
         this.type = type;
         this.value = value;
         this.lineNumber = lineNumber;
+        this.offset = -1;
+        this.length = value.length();
+    }
+
+    // Slice of the input; value may be null, in which case it is decoded from source[offset, offset + length)
+    Token(String type, String value, ByteBuffer source, long offset, int length, int lineNumber) {
+        this.type = type;
+        this.value = value;
+        this.source = value == null ? source : null;
+        this.offset = offset;
+        this.length = length;
+        this.lineNumber = lineNumber;
     }
 
     public String getType() {
@@ -16,6 +36,11 @@ public class Token {
     }
 
     public String getValue() {
+        if (value == null) {
+            byte[] bytes = new byte[length];
+            source.get((int) offset, bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
         return value;
     }
 
@@ -23,8 +48,18 @@ public class Token {
         return lineNumber;
     }
 
+    // Byte offset of the token in the input, or -1 if unknown
+    public long getOffset() {
+        return offset;
+    }
+
+    // Length of the token in bytes (in chars for tokens built from a String)
+    public int getLength() {
+        return length;
+    }
+
     @Override
     public String toString() {
-        return "Token: " + value + " -> Type: " + type + " (Line: " + lineNumber + ")";
+        return "Token: " + getValue() + " -> Type: " + type + " (Line: " + lineNumber + ")";
     }
 }
@@ -0,0 +1,183 @@
+package com.lexer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Columnar token store: type id, byte offset, length and line of every token in parallel primitive
+// arrays (about 13 bytes per token). Values are decoded from the input buffer only when asked for.
+public final class TokenBuffer implements Iterable<Token> {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ByteBuffer source;
+    private byte[] types;
+    private int[] offsets;
+    private int[] lengths;
+    private int[] lines;
+    private int size;
+    // Type id -> type name; token types are a handful of constant strings
+    private String[] typeNames = new String[16];
+    private int typeCount;
+
+    TokenBuffer(ByteBuffer source) {
+        this.source = source;
+        this.types = new byte[INITIAL_CAPACITY];
+        this.offsets = new int[INITIAL_CAPACITY];
+        this.lengths = new int[INITIAL_CAPACITY];
+        this.lines = new int[INITIAL_CAPACITY];
+    }
+
+    void add(String type, int offset, int length, int line) {
+        if (size == types.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+            types = Arrays.copyOf(types, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+        types[size] = typeId(type);
+        offsets[size] = offset;
+        lengths[size] = length;
+        lines[size] = line;
+        size++;
+    }
+
+    // Drops the spare capacity left by growing, once no more tokens will be added
+    void trimToSize() {
+        types = Arrays.copyOf(types, size);
+        offsets = Arrays.copyOf(offsets, size);
+        lengths = Arrays.copyOf(lengths, size);
+        lines = Arrays.copyOf(lines, size);
+    }
+
+    private byte typeId(String type) {
+        for (int i = 0; i < typeCount; i++) {
+            if (typeNames[i] == type || typeNames[i].equals(type)) return (byte) i;
+        }
+        if (typeCount == Byte.MAX_VALUE) {
+            throw new IllegalStateException("Too many token types");
+        }
+        if (typeCount == typeNames.length) {
+            typeNames = Arrays.copyOf(typeNames, typeCount * 2);
+        }
+        typeNames[typeCount] = type;
+        return (byte) typeCount++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getType(int index) {
+        return typeNames[types[checkIndex(index)]];
+    }
+
+    public String getValue(int index) {
+        byte[] bytes = new byte[lengths[checkIndex(index)]];
+        source.get(offsets[index], bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public int getLineNumber(int index) {
+        return lines[checkIndex(index)];
+    }
+
+    public int getOffset(int index) {
+        return offsets[checkIndex(index)];
+    }
+
+    public int getLength(int index) {
+        return lengths[checkIndex(index)];
+    }
+
+    // Standalone Token for one entry
+    public Token get(int index) {
+        checkIndex(index);
+        return new Token(typeNames[types[index]], null, source, offsets[index], lengths[index], lines[index]);
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Token index " + index + " out of bounds for size " + size);
+        }
+        return index;
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    // Iterates with a single flyweight Cursor: each next() returns the same object moved to the next
+    // token, so copy values out (or call get) if a token must outlive the iteration step.
+    @Override
+    public Iterator<Token> iterator() {
+        Cursor cursor = new Cursor();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return cursor.index + 1 < size;
+            }
+
+            @Override
+            public Token next() {
+                if (!cursor.next()) throw new NoSuchElementException();
+                return cursor;
+            }
+        };
+    }
+
+    // Flyweight view of one entry with Token's getters; move it with next() or moveTo()
+    public final class Cursor extends Token {
+        private int index = -1;
+
+        private Cursor() {
+            super(null, null, null, -1, 0, 0);
+        }
+
+        public boolean next() {
+            if (index + 1 >= size) return false;
+            index++;
+            return true;
+        }
+
+        public void moveTo(int index) {
+            this.index = checkIndex(index);
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public String getType() {
+            return TokenBuffer.this.getType(index);
+        }
+
+        @Override
+        public String getValue() {
+            return TokenBuffer.this.getValue(index);
+        }
+
+        @Override
+        public int getLineNumber() {
+            return TokenBuffer.this.getLineNumber(index);
+        }
+
+        @Override
+        public long getOffset() {
+            return TokenBuffer.this.getOffset(index);
+        }
+
+        @Override
+        public int getLength() {
+            return TokenBuffer.this.getLength(index);
+        }
+
+        @Override
+        public String toString() {
+            return "Token: " + getValue() + " -> Type: " + getType() + " (Line: " + getLineNumber() + ")";
+        }
+    }
+}
@@ -0,0 +1,739 @@
+package com.lexer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Pull-based scanner: reads UTF-8 input incrementally and hands out one token per nextToken() call.
+// Only the current lexeme has to stay in the buffer, so memory is bounded by the buffer size
+// (plus the longest single token), not by the input size.
+public final class TokenScanner implements Iterator<Token>, Closeable {
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    // Free space a read is always given: room for any UTF-8 character, so a blocking read makes progress
+    private static final int MIN_READ = 4;
+    // Where panic-mode recovery resumes after an unknown token, besides the start of a comment or
+    // string (see isSyncPoint)
+    private static final String SYNC_DELIMITERS = "\n;{}";
+
+    private final LexicalAnalyzer session;
+    private final Automaton dfa;     // the spec's DFA, or a LazyDFA of this scanner's own
+    private final int skipMask;         // rules whose matches are dropped
+    private final boolean[] delimiters; // characters that end a word; a match that stops inside a word is not a token
+    private final ByteScan bytes = ByteScan.create(); // jumps over comment bodies and blank runs
+    private final StringPool pool;      // canonical token text, or null to decode every time
+    private final StringPool.Probe probe;
+    private final ReadableByteChannel channel; // null when the whole input is already in buf
+    private ByteBuffer buf;
+    private int pos;   // start of the next lexeme
+    private int limit; // end of valid data in buf
+    private long base; // input offset of buf[0]
+    private boolean eof;
+    private int lineNumber = 1;
+    private long lineStart;    // input offset of the current line
+    private final boolean panicRecovery;
+    private Token lookahead;
+    // Current lexeme (starting at pos) found by advance()
+    private String currentType;
+    private int currentLength;
+    private int currentLine;
+    private String currentText; // decoded text if anything asked for it, else null
+    private int currentRule;    // rule matched by advanceRaw(), -1 for an unknown word
+    private int currentKeyword; // keyword index of the matched text, or -1
+    private int currentScanned; // bytes from pos the scanner looked at to find the current lexeme
+    private int currentTransitions;
+    private long skipReach;     // input offset up to which skip-rule matches before the current lexeme looked
+
+    // Session listener, or null; read once here so an unobserved scan only pays a null check
+    private final LexerListener listener;
+    private long readNanos;     // time spent in channel reads, kept apart from SCAN
+    private long observedEnd;   // input offset up to which bytes were reported
+
+    // Region scans (used by ParallelLexer): scanner-level errors and normal-state line starts
+    // are reported here instead of to a session
+    interface RegionListener {
+        void lexicalError(LexicalError error);
+
+        // Called with the offset of each line start reached outside comments; true stops the scan
+        boolean lineStart(int offset);
+    }
+
+    private final RegionListener region;
+    private final boolean regionEndsInput;
+    private boolean endedInComment;
+    private long openCommentStart; // offset and column of the "/*" a region ended inside
+    private int openCommentColumn;
+
+    // Streams from a blocking channel through a heap buffer of the given size
+    TokenScanner(LexicalAnalyzer session, ReadableByteChannel channel, int bufferSize) {
+        this.session = session;
+        this.dfa = session.getSpec().newAutomaton();
+        this.skipMask = session.getSpec().getSkipMask();
+        this.delimiters = session.getSpec().getDelimiters();
+        this.pool = session.getStringPool();
+        this.probe = new StringPool.Probe();
+        this.channel = requireBlocking(channel);
+        this.buf = ByteBuffer.allocate(bufferSize);
+        this.limit = 0;
+        this.eof = false;
+        this.region = null;
+        this.regionEndsInput = true;
+        this.listener = session.getListener();
+        this.panicRecovery = session.getErrorHandler().isPanicRecovery();
+    }
+
+    // Scans a buffer that already holds the complete input (e.g. a memory-mapped file).
+    // Tokens are slices of this buffer and only decode their text when asked for it.
+    TokenScanner(LexicalAnalyzer session, ByteBuffer input) {
+        this.session = session;
+        this.dfa = session.getSpec().newAutomaton();
+        this.skipMask = session.getSpec().getSkipMask();
+        this.delimiters = session.getSpec().getDelimiters();
+        this.pool = session.getStringPool();
+        this.probe = new StringPool.Probe();
+        this.channel = null;
+        this.buf = input.slice();
+        this.pos = 0;
+        this.limit = buf.limit();
+        this.eof = true;
+        this.region = null;
+        this.regionEndsInput = true;
+        this.listener = session.getListener();
+        this.panicRecovery = session.getErrorHandler().isPanicRecovery();
+    }
+
+    // Holds one already decoded lexeme at a time (see hold), so a session can classify text that
+    // was not scanned from an input without a new scanner per lexeme
+    TokenScanner(LexicalAnalyzer session) {
+        this(session, ByteBuffer.allocate(64));
+    }
+
+    // Raw streaming scan without a session, for incremental re-lexing
+    TokenScanner(LexerSpec spec, ReadableByteChannel channel, int bufferSize, StringPool pool, RegionListener region) {
+        this.session = null;
+        this.dfa = spec.newAutomaton();
+        this.skipMask = spec.getSkipMask();
+        this.delimiters = spec.getDelimiters();
+        this.pool = pool;
+        this.probe = new StringPool.Probe();
+        this.channel = channel;
+        this.buf = ByteBuffer.allocate(bufferSize);
+        this.region = region;
+        this.regionEndsInput = true;
+        this.listener = null;
+        this.panicRecovery = false;
+    }
+
+    // Raw scan of input[start, end) without a session, for chunked parallel lexing. Line numbers
+    // start at 1 at 'start', which must be a line start. A commentStart >= 0 means the region begins
+    // inside a block comment opened at that offset and column, so an unclosed one is reported there.
+    TokenScanner(LexerSpec spec, ByteBuffer input, int start, int end, long commentStart, int commentColumn,
+                 boolean panicRecovery, RegionListener region) throws IOException {
+        this.session = null;
+        this.dfa = spec.newAutomaton();
+        this.skipMask = spec.getSkipMask();
+        this.delimiters = spec.getDelimiters();
+        this.pool = null; // raw chunk scans never decode; the replay session does
+        this.probe = null;
+        this.channel = null;
+        this.buf = input;
+        this.pos = start;
+        this.limit = end;
+        this.eof = true;
+        this.region = region;
+        this.regionEndsInput = end == input.limit();
+        this.listener = null;
+        this.panicRecovery = panicRecovery;
+        this.lineStart = start;
+        if (commentStart >= 0) {
+            continueMultiLineComment(commentStart, commentColumn, '*');
+        }
+    }
+
+    // Next token, or null at the end of the input
+    public Token nextToken() {
+        if (lookahead != null) {
+            Token token = lookahead;
+            lookahead = null;
+            return token;
+        }
+        try {
+            if (!advance()) return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Token token = channel == null
+                ? new Token(currentType, currentText, buf, pos, currentLength, currentLine)
+                : new Token(currentType, text(currentLength), null, base + pos, currentLength, currentLine);
+        pos += currentLength;
+        return token;
+    }
+
+    // Scans the rest of a whole-buffer input into columnar storage without creating Token objects
+    public TokenBuffer drainToBuffer() {
+        if (channel != null) {
+            throw new IllegalStateException("Columnar tokens need the whole input in memory (mapped file or String)");
+        }
+        TokenBuffer tokens = new TokenBuffer(buf);
+        if (lookahead != null) {
+            tokens.add(lookahead.getType(), (int) lookahead.getOffset(), lookahead.getLength(), lookahead.getLineNumber());
+            lookahead = null;
+        }
+        try {
+            while (advance()) {
+                tokens.add(currentType, pos, currentLength, currentLine);
+                pos += currentLength;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        tokens.trimToSize();
+        return tokens;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (lookahead == null) {
+            lookahead = nextToken();
+        }
+        return lookahead != null;
+    }
+
+    @Override
+    public Token next() {
+        Token token = nextToken();
+        if (token == null) throw new NoSuchElementException();
+        return token;
+    }
+
+    public Stream<Token> stream() {
+        Spliterator<Token> spliterator = Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(this::closeQuietly);
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean isDelimiter(int b) {
+        return b < 128 && delimiters[b];
+    }
+
+    private int byteAt(int offset) {
+        return buf.get(pos + offset) & 0xFF;
+    }
+
+    // True when the byte at pos + offset is available, reading more input if needed
+    private boolean available(int offset) throws IOException {
+        while (pos + offset >= limit) {
+            if (!refill()) return false;
+        }
+        return true;
+    }
+
+    // A read that returns no bytes would have to be retried in a spin, so streaming takes blocking
+    // channels only. Channels that are not selectable (files, in-memory and adapter channels) block.
+    static ReadableByteChannel requireBlocking(ReadableByteChannel channel) {
+        if (channel instanceof SelectableChannel selectable && !selectable.isBlocking()) {
+            throw new IllegalArgumentException("Non-blocking channels are not supported; configure the channel to block");
+        }
+        return channel;
+    }
+
+    // Moves the current lexeme to the front of the buffer (growing it if the lexeme nearly fills
+    // it) and reads more input after it. Returns false at end of input.
+    private boolean refill() throws IOException {
+        if (eof) return false;
+        int kept = limit - pos;
+        if (buf.capacity() - kept < MIN_READ) {
+            byte[] grown = new byte[Math.max(buf.capacity() * 2, kept + MIN_READ)];
+            System.arraycopy(buf.array(), pos, grown, 0, kept);
+            buf = ByteBuffer.wrap(grown);
+        } else if (pos > 0) {
+            System.arraycopy(buf.array(), pos, buf.array(), 0, kept);
+        }
+        base += pos;
+        pos = 0;
+        limit = kept;
+
+        long start = listener == null ? 0 : System.nanoTime();
+        buf.limit(buf.capacity()).position(limit);
+        int read = channel.read(buf);
+        if (read == 0) {
+            // A blocking read with free space returns at least one byte or end of input
+            throw new IOException("Channel read returned no bytes; only blocking channels are supported");
+        }
+        if (listener != null) {
+            long elapsed = System.nanoTime() - start;
+            readNanos += elapsed;
+            listener.phase(LexerListener.Phase.READ, elapsed);
+        }
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    // Makes text the current lexeme, as its first and only line; returns its length in UTF-8 bytes.
+    // ASCII characters are their own byte; any other text is encoded in one go.
+    int hold(String text) {
+        int length = text.length();
+        reserve(length);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+                length = encoded.length;
+                reserve(length);
+                buf.put(0, encoded);
+                break;
+            }
+            buf.put(i, (byte) c);
+        }
+        pos = 0;
+        limit = length;
+        lineStart = 0;
+        currentText = text;
+        currentLength = length;
+        return length;
+    }
+
+    // Highest-priority rule matching the whole held lexeme, or -1. Sets currentRule and
+    // currentKeyword (the keyword it spells, or -1).
+    int matchHeld() {
+        int state = dfa.getStartState();
+        for (int i = 0; i < limit && state != -1; i++) {
+            state = dfa.nextState(state, buf.get(i) & 0xFF);
+        }
+        int mask = state == -1 ? 0 : dfa.getAcceptMask(state);
+        currentRule = mask == 0 ? -1 : Integer.numberOfTrailingZeros(mask);
+        currentKeyword = state == -1 ? -1 : dfa.getKeyword(state);
+        return currentRule;
+    }
+
+    private void reserve(int length) {
+        if (buf.capacity() < length) {
+            buf = ByteBuffer.allocate(Math.max(length, 2 * buf.capacity()));
+        }
+    }
+
+    // Moves to a lexeme found by an earlier raw scan, so the session can classify it. The raw scan
+    // recorded the lexeme's column, which gives the line start without looking back for it.
+    void seek(int offset, int column) {
+        pos = offset;
+        currentText = null;
+        lineStart = base + offset - (column - 1);
+    }
+
+    int position() {
+        return pos;
+    }
+
+    // Input offset of pos (differs from position() when streaming)
+    long offset() {
+        return base + pos;
+    }
+
+    // Skips the current lexeme after advanceRaw()
+    void consume() {
+        pos += currentLength;
+    }
+
+    int currentRule() {
+        return currentRule;
+    }
+
+    int currentKeyword() {
+        return currentKeyword;
+    }
+
+    int currentLength() {
+        return currentLength;
+    }
+
+    int currentLine() {
+        return currentLine;
+    }
+
+    // Number of bytes from the lexeme start that decided the match, including lookahead past its end
+    // (one more if the scan stopped at the end of the input)
+    int scannedLength() {
+        return currentScanned;
+    }
+
+    boolean endedInComment() {
+        return endedInComment;
+    }
+
+    long openCommentStart() {
+        return openCommentStart;
+    }
+
+    int openCommentColumn() {
+        return openCommentColumn;
+    }
+
+    // Slice token for the lexeme at pos (whole-buffer mode)
+    Token token(String type, int length, int line) {
+        return new Token(type, currentText, buf, pos, length, line);
+    }
+
+    // 1-based byte column of pos
+    int column() {
+        return (int) (base + pos - lineStart) + 1;
+    }
+
+    int firstByte() {
+        return byteAt(0);
+    }
+
+    // Text of the current lexeme, decoded once (or taken from the pool)
+    String text(int length) {
+        if (currentText == null) {
+            if (pool != null) {
+                currentText = pool.intern(probe, buf, pos, length);
+            } else if (buf.hasArray()) {
+                currentText = new String(buf.array(), buf.arrayOffset() + pos, length, StandardCharsets.UTF_8);
+            } else {
+                byte[] bytes = new byte[length];
+                buf.get(pos, bytes);
+                currentText = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+        return currentText;
+    }
+
+    // Text of the current lexeme without its first byte (the '@' of a global identifier)
+    String textAfterFirst(int length) {
+        return pool != null ? pool.intern(probe, buf, pos + 1, length - 1) : text(length).substring(1);
+    }
+
+    // Error for the current lexeme, with its text left undecoded unless it already is. Whole-buffer
+    // input stays as it is, so the error keeps a slice of it; a streaming buffer is reused, so its
+    // bytes are copied.
+    LexicalError error(LexicalError.Code code, int line, int length) {
+        if (currentText != null) {
+            return new LexicalError(code, line, column(), offset(), length, currentText);
+        }
+        ByteBuffer text;
+        if (channel == null) {
+            text = buf.slice(pos, length);
+        } else {
+            byte[] bytes = new byte[length];
+            buf.get(pos, bytes);
+            text = ByteBuffer.wrap(bytes);
+        }
+        return new LexicalError(code, line, column(), offset(), length, text);
+    }
+
+    // Finds the next token and classifies it through the session
+    private boolean advance() throws IOException {
+        if (listener != null) return advanceObserved();
+        if (!advanceRaw()) return false;
+        classifyCurrent();
+        return true;
+    }
+
+    private void classifyCurrent() {
+        if (currentRule == -1) {
+            session.unknown(this, currentLength, currentLine);
+            currentType = "UNKNOWN";
+        } else {
+            currentType = session.classify(currentRule, currentKeyword, this, currentLength);
+        }
+    }
+
+    // advance() with phase timings and token events for the session's listener
+    private boolean advanceObserved() throws IOException {
+        long read = readNanos;
+        long symbols = session.symbolNanos;
+        long start = System.nanoTime();
+        boolean found = advanceRaw();
+        long scanned = System.nanoTime();
+        listener.phase(LexerListener.Phase.SCAN, scanned - start - (readNanos - read));
+        long end = found ? offset() + currentLength : offset();
+        listener.bytes(end - observedEnd);
+        observedEnd = end;
+        if (!found) return false;
+
+        classifyCurrent();
+        listener.phase(LexerListener.Phase.CLASSIFY, System.nanoTime() - scanned - (session.symbolNanos - symbols));
+        listener.token(currentType, currentLength, currentTransitions);
+        return true;
+    }
+
+    private void error(LexicalError.Code code, int line, int column, long offset, long length) {
+        if (region == null && session.suppressError()) return;
+        LexicalError error = new LexicalError(code, line, column, offset, (int) Math.min(length, Integer.MAX_VALUE),
+                (String) null);
+        if (region != null) {
+            region.lexicalError(error);
+        } else {
+            session.lexicalError(error);
+        }
+    }
+
+    // Finds the next token with the longest match of the combined DFA, skipping comments, whitespace
+    // and skip-rule matches. Leaves pos at its start and sets currentRule/Length/Line; false at end of input.
+    boolean advanceRaw() throws IOException {
+        currentText = null;
+        skipReach = 0;
+        while (available(0)) {
+            int c = byteAt(0);
+
+            if (c == '\n') {
+                lineNumber++;
+                pos++;
+                lineStart = base + pos;
+                if (region != null && region.lineStart(pos)) return false;
+                continue;
+            }
+            if (c == ' ' || c == '\t' || c == '\r') {
+                pos = bytes.skipBlanks(buf, pos + 1, limit);
+                continue;
+            }
+
+            if (c == '/' && available(1) && byteAt(1) == '/') {
+                skipToNewline();
+                continue;
+            }
+            if (c == '/' && available(1) && byteAt(1) == '*') {
+                skipMultiLineComment();
+                continue;
+            }
+
+            // Longest match: remember the last accepting length, its rule and keyword. The inner loop
+            // runs over the buffered bytes; only reaching the end of the buffer can trigger a refill.
+            int state = dfa.getStartState();
+            int matchRule = -1;
+            int matchKeyword = -1;
+            int matchLength = 0;
+            int scanned = 0;
+            scan:
+            while (available(scanned)) {
+                for (int end = limit - pos; scanned < end; ) {
+                    int next = dfa.nextState(state, buf.get(pos + scanned) & 0xFF);
+                    if (next == -1) {
+                        state = -1;
+                        break scan;
+                    }
+                    state = next;
+                    scanned++;
+                    int accepted = dfa.getAcceptMask(state);
+                    if (accepted != 0) {
+                        matchRule = Integer.numberOfTrailingZeros(accepted);
+                        matchKeyword = dfa.getKeyword(state);
+                        matchLength = scanned;
+                    }
+                }
+            }
+            currentScanned = scanned + 1;
+            currentTransitions = state == -1 ? scanned + 1 : scanned;
+
+            // A match that stops in the middle of a word (e.g. "5." or "abcD") makes the whole word unknown
+            boolean splitsWord = matchRule != -1 && available(matchLength)
+                    && !isDelimiter(byteAt(matchLength - 1)) && !isDelimiter(byteAt(matchLength));
+            if (matchRule != -1) {
+                currentScanned = Math.max(currentScanned, matchLength + 1);
+            }
+            if (matchRule != -1 && !splitsWord) {
+                if ((skipMask & (1 << matchRule)) != 0) {
+                    // Rules never match a newline, so the line count is unaffected
+                    skipReach = Math.max(skipReach, base + pos + currentScanned);
+                    pos += matchLength;
+                    continue;
+                }
+                return current(matchRule, matchKeyword, matchLength);
+            }
+
+            if (c == '"') {
+                // No closing quote before the end of the line
+                long start = base + pos;
+                int column = column();
+                skipToNewline();
+                error(LexicalError.Code.UNCLOSED_STRING, lineNumber, column, start, base + pos - start);
+                continue;
+            }
+
+            int wordLength = 1;
+            if (!isDelimiter(c)) {
+                while (available(wordLength) && !isDelimiter(byteAt(wordLength))) {
+                    wordLength++;
+                }
+            }
+            if (panicRecovery) {
+                while (available(wordLength) && !isSyncPoint(wordLength)) {
+                    wordLength++;
+                }
+                while (byteAt(wordLength - 1) == ' ' || byteAt(wordLength - 1) == '\t' || byteAt(wordLength - 1) == '\r') {
+                    wordLength--;
+                }
+            }
+            currentScanned = Math.max(currentScanned, wordLength + 1);
+            return current(-1, -1, wordLength);
+        }
+        return false;
+    }
+
+    // A statement or block boundary, or the start of a comment or string literal: those have to be
+    // scanned as such, or panic recovery would swallow a "//" and lex the commented-out code
+    private boolean isSyncPoint(int offset) throws IOException {
+        int c = byteAt(offset);
+        if (SYNC_DELIMITERS.indexOf(c) >= 0 || c == '"') return true;
+        return c == '/' && available(offset + 1) && (byteAt(offset + 1) == '/' || byteAt(offset + 1) == '*');
+    }
+
+    private boolean current(int rule, int keyword, int length) {
+        currentScanned = (int) Math.max(currentScanned, skipReach - (base + pos));
+        currentRule = rule;
+        currentKeyword = keyword;
+        currentLength = length;
+        currentLine = lineNumber;
+        return true;
+    }
+
+    // Moves pos to the next newline (or the end of the input)
+    private void skipToNewline() throws IOException {
+        while (available(0)) {
+            pos = bytes.indexOf(buf, pos, limit, (byte) '\n');
+            if (pos < limit) return;
+        }
+    }
+
+    private void skipMultiLineComment() throws IOException {
+        long start = base + pos;
+        int column = column();
+        pos += 2;
+        continueMultiLineComment(start, column, '*');
+    }
+
+    // start and column locate the opening "/*" for the error span
+    private void continueMultiLineComment(long start, int column, int previous) throws IOException {
+        endedInComment = false;
+        while (available(1)) {
+            // Only a '*' can end the comment and only a newline needs counting; jump to the next one
+            int next = bytes.indexOfEither(buf, pos, limit - 1, (byte) '*', (byte) '\n');
+            if (next > pos) {
+                previous = buf.get(next - 1);
+                pos = next;
+                continue;
+            }
+            if (byteAt(0) == '*' && byteAt(1) == '/') {
+                pos += 2;
+                return;
+            }
+            previous = byteAt(0);
+            pos++;
+            if (previous == '\n') {
+                lineNumber++;
+                lineStart = base + pos;
+            }
+        }
+        // Unclosed: consume the last byte and report on the last line of the input,
+        // not the phantom line after a trailing newline. A region that stops before the end of
+        // the input just records that the comment continues.
+        if (!regionEndsInput) {
+            if (available(0)) {
+                boolean newline = byteAt(0) == '\n';
+                pos++;
+                if (newline) {
+                    lineNumber++;
+                    lineStart = base + pos;
+                }
+            }
+            endedInComment = true;
+            openCommentStart = start;
+            openCommentColumn = column;
+            return;
+        }
+        int lastLine = lineNumber;
+        if (available(0)) {
+            boolean newline = byteAt(0) == '\n';
+            pos++;
+            if (newline) {
+                lineNumber++;
+                lineStart = base + pos;
+            }
+        } else if (previous == '\n') {
+            lastLine--;
+        }
+        error(LexicalError.Code.UNCLOSED_COMMENT, lastLine, column, start, base + pos - start);
+    }
+
+    // Adapts a Reader to a byte channel by encoding its characters as UTF-8 on the fly
+    static final class EncodingChannel implements ReadableByteChannel {
+        private final Reader reader;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private final CharBuffer chars = CharBuffer.allocate(8 * 1024);
+        private boolean endOfInput;
+        private boolean flushed;
+        private boolean open = true;
+
+        EncodingChannel(Reader reader) {
+            this.reader = reader;
+            this.chars.flip();
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (flushed) return -1;
+            int start = dst.position();
+            while (dst.hasRemaining()) {
+                CoderResult result = encoder.encode(chars, dst, endOfInput);
+                if (result.isError()) result.throwException();
+                if (result.isOverflow()) break;
+                if (endOfInput) {
+                    encoder.flush(dst);
+                    flushed = true;
+                    break;
+                }
+                // Underflow: keep any unpaired surrogate and read more characters after it
+                chars.compact();
+                int n = reader.read(chars);
+                chars.flip();
+                if (n < 0) endOfInput = true;
+            }
+            int written = dst.position() - start;
+            return written == 0 && flushed ? -1 : written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            open = false;
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.lexer;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+
+// ByteScan over whole vectors of the widest species the CPU supports; the tail of a range that
+// does not fill a vector goes through the scalar loops. Heap buffers are read in place, other
+// buffers (memory-mapped files) are copied a vector at a time into a scratch array.
+// Only loaded after ByteScan has checked that the incubator module is present.
+final class VectorByteScan extends ByteScan {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    private final byte[] scratch = new byte[LANES];
+
+    private ByteVector load(ByteBuffer buf, int index) {
+        if (buf.hasArray()) {
+            return ByteVector.fromArray(SPECIES, buf.array(), buf.arrayOffset() + index);
+        }
+        buf.get(index, scratch, 0, LANES);
+        return ByteVector.fromArray(SPECIES, scratch, 0);
+    }
+
+    @Override
+    int indexOf(ByteBuffer buf, int from, int to, byte b) {
+        int i = from;
+        for (; i + LANES <= to; i += LANES) {
+            long hits = load(buf, i).eq(b).toLong();
+            if (hits != 0) return i + Long.numberOfTrailingZeros(hits);
+        }
+        return super.indexOf(buf, i, to, b);
+    }
+
+    @Override
+    int indexOfEither(ByteBuffer buf, int from, int to, byte a, byte b) {
+        int i = from;
+        for (; i + LANES <= to; i += LANES) {
+            ByteVector v = load(buf, i);
+            long hits = v.eq(a).or(v.eq(b)).toLong();
+            if (hits != 0) return i + Long.numberOfTrailingZeros(hits);
+        }
+        return super.indexOfEither(buf, i, to, a, b);
+    }
+
+    @Override
+    int skipBlanks(ByteBuffer buf, int from, int to) {
+        int i = from;
+        // Most blank runs are a single space, which is not worth a vector load
+        if (i < to && buf.get(i) != ' ' && buf.get(i) != '\t' && buf.get(i) != '\r') return i;
+        for (; i + LANES <= to; i += LANES) {
+            ByteVector v = load(buf, i);
+            long blanks = v.eq((byte) ' ').or(v.eq((byte) '\t')).or(v.eq((byte) '\r')).toLong();
+            if (blanks != -1L >>> (64 - LANES)) return i + Long.numberOfTrailingZeros(~blanks);
+        }
+        return super.skipBlanks(buf, i, to);
+    }
+}